@@ -0,0 +1,98 @@
+package simacogo.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simacogo.bench.Corpus;
+import simacogo.framework.Board;
+import simacogo.framework.MoveBatch;
+import simacogo.framework.Node;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Scoring the drop into every column of every mid-game corpus position: the
+ * previewPoints loop the search used to run, MoveBatch's scalar walk, and
+ * MoveBatch.scoreAll, which runs in vector lanes here because the fork adds
+ * jdk.incubator.vector. Each operation returns the points summed so none of
+ * the work can be dropped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"},
+	  jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DropScoringBenchmark {
+
+	private static final int COLUMNS = 9;
+
+	private Board[] boards;
+	//Side to move's markers and all markers, low and high words, per position
+	private long[] ownLo, ownHi, occupiedLo, occupiedHi;
+	private final int[] points = new int[COLUMNS];
+
+	@Setup
+	public void setUp(){
+		if(!MoveBatch.isVectorized())
+			throw new IllegalStateException("jdk.incubator.vector did not load");
+		Node[] corpus = Corpus.midgamePositions();
+		boards = new Board[corpus.length];
+		ownLo = new long[corpus.length];
+		ownHi = new long[corpus.length];
+		occupiedLo = new long[corpus.length];
+		occupiedHi = new long[corpus.length];
+		for(int i = 0; i < corpus.length; i++){
+			Node node = corpus[i];
+			boards[i] = new Board(node);
+			boolean xMoves = !node.getAction().playerIsX;
+			ownLo[i] = xMoves ? node.getXLo() : node.getOLo();
+			ownHi[i] = xMoves ? node.getXHi() : node.getOHi();
+			occupiedLo[i] = node.getXLo() | node.getOLo();
+			occupiedHi[i] = node.getXHi() | node.getOHi();
+		}
+	}
+
+	@Benchmark
+	public int previewPointsLoop(){
+		int total = 0;
+		for(Board board : boards){
+			for(int y = 0; y < COLUMNS; y++){
+				if(board.canPlay(y))
+					total += board.previewPoints(y);
+			}
+		}
+		return total;
+	}
+
+	@Benchmark
+	public int scalarBatch(){
+		int total = 0;
+		for(int i = 0; i < ownLo.length; i++){
+			total += MoveBatch.scalarScoreAll(ownLo[i], ownHi[i], occupiedLo[i], occupiedHi[i], points);
+			for(int y = 0; y < COLUMNS; y++)
+				total += points[y];
+		}
+		return total;
+	}
+
+	@Benchmark
+	public int vectorBatch(){
+		int total = 0;
+		for(int i = 0; i < ownLo.length; i++){
+			total += MoveBatch.scoreAll(ownLo[i], ownHi[i], occupiedLo[i], occupiedHi[i], points);
+			for(int y = 0; y < COLUMNS; y++)
+				total += points[y];
+		}
+		return total;
+	}
+}
@@ -0,0 +1,60 @@
+package simacogo.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import simacogo.bench.Corpus;
+import simacogo.framework.Node;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Move generation and drop scoring on Node, over the mid-game corpus. One
+ * operation covers every corpus position. Run with -prof gc for the bytes
+ * each operation allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"},
+	  jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class NodeBenchmark {
+
+	private Node[] corpus;
+
+	@Setup
+	public void setUp(){
+		corpus = Corpus.midgamePositions();
+	}
+
+	@Benchmark
+	public void getChildren(Blackhole blackhole){
+		for(Node node : corpus)
+			blackhole.consume(node.getChildren());
+	}
+
+	//Both players' points for the landing cell of every open column.
+	@Benchmark
+	public int movePoints(){
+		int total = 0;
+		for(Node node : corpus){
+			for(int y = 0; y < 9; y++){
+				int x = 8 - node.getHeight(y);
+				if(x >= 0)
+					total += node.movePoints(x, y, 'O') + node.movePoints(x, y, 'X');
+			}
+		}
+		return total;
+	}
+}
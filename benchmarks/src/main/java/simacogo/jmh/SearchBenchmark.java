@@ -0,0 +1,85 @@
+package simacogo.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simacogo.bench.Corpus;
+import simacogo.framework.Board;
+import simacogo.framework.Node;
+import simacogo.play.Minimax;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Fixed-depth search at plies 4-9: plain minimax and alpha-beta, on Node
+ * and on the make/unmake Board. Alpha-beta on the Board searches every
+ * mid-game corpus position in one operation. The others search the
+ * standard position only: Node allocates a child list per node and plain
+ * minimax visits every node to the full depth, so over the whole corpus
+ * their deep plies would take hours. Even so, plain minimax on Node at
+ * ply 9 takes minutes per operation; pick the plies to run with
+ * -p ply=4,5,6 when the whole range is not needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"},
+	  jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SearchBenchmark {
+
+	@Param({"4", "5", "6", "7", "8", "9"})
+	private int ply;
+
+	private Node standard;
+	private boolean oToMove;
+	private Board standardBoard;
+	private Board[] boards;
+	private Minimax minimax;
+
+	@Setup
+	public void setUp(){
+		standard = Corpus.standardPosition();
+		oToMove = standard.getAction().playerIsX;
+		standardBoard = new Board(standard);
+		Node[] corpus = Corpus.midgamePositions();
+		boards = new Board[corpus.length];
+		for(int i = 0; i < corpus.length; i++)
+			boards[i] = new Board(corpus[i]);
+		minimax = new Minimax();
+	}
+
+	@Benchmark
+	public int minimax(){
+		return minimax.minimax(standard, ply, oToMove);
+	}
+
+	@Benchmark
+	public int abPrune(){
+		return minimax.abPrune(standard, ply, Integer.MIN_VALUE, Integer.MAX_VALUE, oToMove);
+	}
+
+	@Benchmark
+	public int minimaxBoard(){
+		return minimax.minimax(standardBoard, ply);
+	}
+
+	//The boards are back at their positions after each search, so they can be reused.
+	@Benchmark
+	public long abPruneBoard(){
+		long total = 0;
+		for(Board board : boards)
+			total += minimax.abPrune(board, ply, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		return total;
+	}
+}
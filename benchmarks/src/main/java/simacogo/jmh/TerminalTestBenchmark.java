@@ -0,0 +1,58 @@
+package simacogo.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simacogo.bench.Corpus;
+import simacogo.framework.Node;
+import simacogo.framework.TerminalTest;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The full-board terminal test against the move-count one, over the
+ * mid-game corpus. One operation tests every corpus position.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class TerminalTestBenchmark {
+
+	private Node[] corpus;
+
+	@Setup
+	public void setUp(){
+		corpus = Corpus.midgamePositions();
+	}
+
+	@Benchmark
+	public int isTerminalState(){
+		int terminal = 0;
+		for(Node node : corpus){
+			if(TerminalTest.isTerminalState(node))
+				terminal++;
+		}
+		return terminal;
+	}
+
+	@Benchmark
+	public int isTerminalStateFast(){
+		int terminal = 0;
+		for(Node node : corpus){
+			if(TerminalTest.isTerminalStateFast(node))
+				terminal++;
+		}
+		return terminal;
+	}
+}
@@ -0,0 +1,51 @@
+package simacogo.bench;
+
+import simacogo.framework.Board;
+import simacogo.framework.Node;
+import simacogo.play.Minimax;
+
+import java.lang.management.ManagementFactory;
+
+/*
+ * Measures heap allocation per searched node for the Node search and the
+ * make/unmake Board search from the same mid-game position. Uses the
+ * HotSpot per-thread allocation counter, so run it on a HotSpot JVM.
+ */
+public class AllocationBenchmark {
+
+	private static final int DEPTH = 6;
+	private static final int WARMUP_ROUNDS = 5;
+	
+	public static void main(String[] args) {
+		com.sun.management.ThreadMXBean threads = 
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		Node node = Corpus.standardPosition();
+		boolean oToMove = node.getAction().playerIsX;
+		Minimax minimax = new Minimax();
+		
+		//Node search, builds child lists at every interior node
+		for(int i = 0; i < WARMUP_ROUNDS; i++)
+			minimax.abPrune(node, DEPTH, Integer.MIN_VALUE, Integer.MAX_VALUE, oToMove);
+		long startNodes = minimax.getNodeCount();
+		long before = threads.getThreadAllocatedBytes(thread);
+		minimax.abPrune(node, DEPTH, Integer.MIN_VALUE, Integer.MAX_VALUE, oToMove);
+		long bytes = threads.getThreadAllocatedBytes(thread) - before;
+		report("Node abPrune", bytes, minimax.getNodeCount() - startNodes);
+		
+		//Make/unmake search on one board
+		Board board = new Board(node);
+		for(int i = 0; i < WARMUP_ROUNDS; i++)
+			minimax.abPrune(board, DEPTH, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		startNodes = minimax.getNodeCount();
+		before = threads.getThreadAllocatedBytes(thread);
+		minimax.abPrune(board, DEPTH, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		bytes = threads.getThreadAllocatedBytes(thread) - before;
+		report("Board abPrune", bytes, minimax.getNodeCount() - startNodes);
+	}
+	
+	private static void report(String name, long bytes, long nodes){
+		System.out.println(name + ": " + nodes + " nodes, " + bytes + " bytes, " 
+				+ String.format("%.2f", (double) bytes / nodes) + " bytes/node");
+	}
+}
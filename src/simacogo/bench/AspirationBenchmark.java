@@ -0,0 +1,52 @@
+package simacogo.bench;
+
+import simacogo.framework.Node;
+import simacogo.play.Minimax;
+import simacogo.play.SearchOptions;
+import simacogo.play.TranspositionTable;
+
+/*
+ * Aspiration window tuning report. Runs the timed decide without a time
+ * limit to a fixed depth on a set of mid-game positions, once per window
+ * size, and prints total nodes and how often the windows failed high or
+ * low. Window 0 is the full-window baseline.
+ *
+ * Usage: AspirationBenchmark [depth] [widening]
+ */
+public class AspirationBenchmark {
+
+	private static final int[][] OPENINGS = {
+		{4, 4, 3, 5, 2, 6, 4, 3, 5},
+		{0, 8, 1, 7, 2, 6, 3, 5, 4, 4, 4},
+		{4, 3, 5, 3, 4, 5, 6, 2, 2, 6, 1},
+		{8, 8, 8, 7, 7, 6, 0, 1, 2, 4, 4, 4, 4}
+	};
+	private static final int[] WINDOWS = {0, 1, 2, 4, 8, 16};
+	
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+		int widening = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		Minimax minimax = new Minimax();
+		
+		System.out.println("window,nodes,searches,failHigh,failLow,reSearchRate");
+		for(int window : WINDOWS){
+			long nodes = 0, searches = 0, failHighs = 0, failLows = 0;
+			for(int[] opening : OPENINGS){
+				Node node = Corpus.playOpening(opening);
+				SearchOptions options = new SearchOptions(depth, true, false);
+				options.setTranspositionTable(new TranspositionTable(18, 
+						TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+				options.setMoveOrdering(true);
+				options.setAspirationWindow(window);
+				options.setAspirationWidening(widening);
+				nodes += minimax.decide(node, options, 0).getNodeCount();
+				searches += minimax.getAspirationSearches();
+				failHighs += minimax.getAspirationFailHighs();
+				failLows += minimax.getAspirationFailLows();
+			}
+			double rate = searches == 0 ? 0 : (double) (failHighs + failLows) / searches;
+			System.out.println(window + "," + nodes + "," + searches + "," + failHighs + "," 
+					+ failLows + "," + String.format("%.2f", rate));
+		}
+	}
+}
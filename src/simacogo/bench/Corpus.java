@@ -0,0 +1,92 @@
+package simacogo.bench;
+
+import simacogo.framework.BoardGeometry;
+import simacogo.framework.Node;
+import simacogo.framework.TerminalTest;
+
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Fixed positions shared by the benchmarks, so numbers from different runs
+ * and different benchmarks are measured on the same boards.
+ */
+public class Corpus {
+
+	//Columns played from the empty board to reach the standard position
+	public static final int[] STANDARD_OPENING = {4, 4, 3, 5, 2, 6, 4, 3, 5};
+	
+	private static final long SEED = 2016;
+	private static final int MIDGAME_POSITIONS = 16;
+	private static final int MIN_MOVES = 12;
+	private static final int MAX_MOVES = 40;
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
+	
+	private Corpus(){
+	}
+	
+	/*
+	 * Plays a fixed list of columns from the empty board, alternating players
+	 * the same way Node.getChildren does.
+	 */
+	public static Node playOpening(int[] columns){
+		Node node = new Node();
+		for(int y : columns){
+			for(Node child : node.getChildren()){
+				if(child.getAction().getyCoord() == y){
+					node = child;
+					break;
+				}
+			}
+		}
+		return node;
+	}
+	
+	//The position most single-position benchmarks use.
+	public static Node standardPosition(){
+		return playOpening(STANDARD_OPENING);
+	}
+	
+	/*
+	 * Mid-game positions from seeded random play, 12 to 40 markers in and
+	 * with O to move, the same on every run.
+	 */
+	public static Node[] midgamePositions(){
+		Random random = new Random(SEED);
+		Node[] positions = new Node[MIDGAME_POSITIONS];
+		int found = 0;
+		while(found < MIDGAME_POSITIONS){
+			int moves = MIN_MOVES + random.nextInt(MAX_MOVES - MIN_MOVES + 1);
+			Node node = new Node();
+			for(int i = 0; i < moves && !TerminalTest.isTerminalState(node); i++){
+				List<Node> children = node.getChildren();
+				node = children.get(random.nextInt(children.size()));
+			}
+			if(node.getAction().playerIsX && !TerminalTest.isTerminalState(node))
+				positions[found++] = node;
+		}
+		return positions;
+	}
+	
+	/*
+	 * Seeded random-play positions with exactly the given number of empty
+	 * cells, O to move, the same on every run for the same arguments. O
+	 * moves first from the empty board, so the count must be odd.
+	 */
+	public static Node[] endgamePositions(int empty, int count){
+		if(empty % 2 == 0)
+			throw new IllegalArgumentException("O is only to move with an odd number of empty cells");
+		Random random = new Random(SEED + empty);
+		Node[] positions = new Node[count];
+		int moves = CELLS - empty;
+		for(int found = 0; found < count; found++){
+			Node node = new Node();
+			for(int i = 0; i < moves; i++){
+				List<Node> children = node.getChildren();
+				node = children.get(random.nextInt(children.size()));
+			}
+			positions[found] = node;
+		}
+		return positions;
+	}
+}
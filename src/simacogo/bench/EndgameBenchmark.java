@@ -0,0 +1,46 @@
+package simacogo.bench;
+
+import simacogo.framework.Node;
+import simacogo.play.Minimax;
+import simacogo.play.SearchOptions;
+import simacogo.play.SearchResult;
+import simacogo.play.TranspositionTable;
+
+/*
+ * Endgame solve time against the number of empty cells. For each count,
+ * solves a fixed set of positions with that many empty cells from scratch,
+ * with a fresh table each, and prints the average time and nodes per
+ * solve. Counts are odd, the ones with O to move. Useful for picking an
+ * endgame threshold that fits the move time.
+ *
+ * Usage: EndgameBenchmark [max empty] [positions per count]
+ */
+public class EndgameBenchmark {
+
+	private static final int MIN_EMPTY = 3;
+	
+	public static void main(String[] args) {
+		int maxEmpty = args.length > 0 ? Integer.parseInt(args[0]) : 18;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		Minimax minimax = new Minimax();
+		
+		System.out.println("empty,avgMillis,maxMillis,avgNodes");
+		for(int empty = MIN_EMPTY; empty <= maxEmpty; empty += 2){
+			long totalNanos = 0, maxNanos = 0, nodes = 0;
+			for(Node node : Corpus.endgamePositions(empty, count)){
+				SearchOptions options = new SearchOptions(1, true, false);
+				options.setTranspositionTable(new TranspositionTable(20, 
+						TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+				options.setPrincipalVariation(true);
+				long start = System.nanoTime();
+				SearchResult result = minimax.solve(node, options);
+				long nanos = System.nanoTime() - start;
+				totalNanos += nanos;
+				maxNanos = Math.max(maxNanos, nanos);
+				nodes += result.getNodeCount();
+			}
+			System.out.println(empty + "," + String.format("%.2f", totalNanos / 1e6 / count) + "," 
+					+ String.format("%.2f", maxNanos / 1e6) + "," + nodes / count);
+		}
+	}
+}
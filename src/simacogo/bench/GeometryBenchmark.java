@@ -0,0 +1,112 @@
+package simacogo.bench;
+
+import simacogo.framework.BoardGeometry;
+import simacogo.framework.GeometryBoard;
+import simacogo.play.Minimax;
+import simacogo.play.SearchOptions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Search speed against board size. For each size, runs fixed-depth
+ * alpha-beta from seeded random positions a fifth full, repeated for a
+ * couple of seconds after a warm-up, and prints nodes per second, along with which board representation the size gets: one
+ * word up to 64 cells, two up to 128, the generic word array above.
+ *
+ * Each size runs in its own JVM, so the search's calls into the board only
+ * ever see one representation and are compiled for it, as they would be
+ * in a real game. Pass --in-process to run every size in this JVM instead.
+ *
+ * Usage: GeometryBenchmark [depth] [sizes...] [--in-process]
+ */
+public class GeometryBenchmark {
+
+	private static final String[] DEFAULT_SIZES = {"7x7", "8x8", "9x9", "11x11", "15x15", "19x13"};
+	private static final int POSITIONS = 8;
+	private static final long WARMUP_NANOS = 1000000000L;
+	private static final long MEASURE_NANOS = 2000000000L;
+	private static final long SEED = 2016;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if(args.length > 0 && args[0].equals("--size")){
+			measure(BoardGeometry.parse(args[1]), Integer.parseInt(args[2]));
+			return;
+		}
+		int depth = 6;
+		boolean inProcess = false;
+		List<String> sizes = new ArrayList<String>();
+		for(String arg : args){
+			if(arg.equals("--in-process"))
+				inProcess = true;
+			else if(arg.contains("x"))
+				sizes.add(arg);
+			else
+				depth = Integer.parseInt(arg);
+		}
+		if(sizes.isEmpty())
+			sizes.addAll(Arrays.asList(DEFAULT_SIZES));
+
+		System.out.println("size,cells,board,depth,nodes,millis,nodesPerSec");
+		for(String size : sizes){
+			if(inProcess){
+				measure(BoardGeometry.parse(size), depth);
+				continue;
+			}
+			String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+			Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+					GeometryBenchmark.class.getName(), "--size", size, String.valueOf(depth))
+					.redirectErrorStream(true).start();
+			try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))){
+				String line;
+				while((line = reader.readLine()) != null)
+					System.out.println(line);
+			}
+			process.waitFor();
+		}
+	}
+
+	//Times the search on one size and prints its CSV line.
+	private static void measure(BoardGeometry geometry, int depth){
+		Minimax minimax = new Minimax();
+		SearchOptions options = new SearchOptions(depth, true, false);
+		GeometryBoard[] boards = new GeometryBoard[POSITIONS];
+		Random random = new Random(SEED);
+		for(int i = 0; i < POSITIONS; i++){
+			GeometryBoard board = GeometryBoard.create(geometry);
+			int moves = 2 * (geometry.getCells() / 10);
+			for(int move = 0; move < moves; move++){
+				int y;
+				do {
+					y = random.nextInt(geometry.getColumns());
+				} while(!board.canPlay(y));
+				board.play(y);
+			}
+			boards[i] = board;
+		}
+
+		long start = System.nanoTime();
+		while(System.nanoTime() - start < WARMUP_NANOS){
+			for(GeometryBoard board : boards)
+				minimax.decide(board, options);
+		}
+		long nodes = 0;
+		long nanos;
+		start = System.nanoTime();
+		do {
+			for(GeometryBoard board : boards)
+				nodes += minimax.decide(board, options).getNodeCount();
+			nanos = System.nanoTime() - start;
+		} while(nanos < MEASURE_NANOS);
+		String kind = geometry.getCells() <= 64 ? "64-bit"
+				: geometry.getCells() <= BoardGeometry.MASKED_CELLS ? "128-bit" : "generic";
+		System.out.println(geometry + "," + geometry.getCells() + "," + kind + "," + depth + ","
+				+ nodes + "," + nanos / 1000000 + "," + String.format("%.0f", nodes * 1e9 / nanos));
+	}
+}
@@ -0,0 +1,54 @@
+package simacogo.bench;
+
+import simacogo.framework.Node;
+import simacogo.play.Minimax;
+import simacogo.play.SearchOptions;
+import simacogo.play.SearchResult;
+import simacogo.play.TranspositionTable;
+
+/*
+ * Scaling report for Lazy SMP. Searches the same mid-game position to a
+ * fixed depth with 1, 2, 4, ... threads up to the number of cores, each run
+ * with a fresh transposition table, and prints time to depth, nodes per
+ * second and nodes per second per thread.
+ *
+ * Usage: LazySmpBenchmark [depth] [maxThreads]
+ */
+public class LazySmpBenchmark {
+
+	private static final int WARMUP_ROUNDS = 3;
+	
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 11;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) 
+				: Runtime.getRuntime().availableProcessors();
+		Node node = Corpus.standardPosition();
+		Minimax minimax = new Minimax();
+		
+		for(int i = 0; i < WARMUP_ROUNDS; i++)
+			run(minimax, node, depth - 2, 1);
+		
+		System.out.println("threads,depth,ms,nodes,nodes/sec,nodes/sec/thread,speedup");
+		double baseMillis = 0;
+		for(int threads = 1; threads <= maxThreads; threads *= 2){
+			long start = System.nanoTime();
+			SearchResult result = run(minimax, node, depth, threads);
+			double millis = (System.nanoTime() - start) / 1e6;
+			if(threads == 1)
+				baseMillis = millis;
+			double nps = result.getNodeCount() / (millis / 1000);
+			System.out.println(threads + "," + result.getDepth() + "," 
+					+ String.format("%.1f", millis) + "," + result.getNodeCount() + "," 
+					+ String.format("%.0f", nps) + "," + String.format("%.0f", nps / threads) + ","
+					+ String.format("%.2f", baseMillis / millis));
+		}
+	}
+	
+	private static SearchResult run(Minimax minimax, Node node, int depth, int threads){
+		SearchOptions options = new SearchOptions(depth, true, false);
+		options.setTranspositionTable(new TranspositionTable());
+		options.setThreads(threads);
+		options.setLazySmp(true);
+		return minimax.decide(node, options, 0);
+	}
+}
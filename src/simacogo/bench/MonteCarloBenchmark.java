@@ -0,0 +1,62 @@
+package simacogo.bench;
+
+import simacogo.framework.Node;
+import simacogo.play.EngineConfig;
+import simacogo.play.MatchRunner;
+import simacogo.play.MonteCarlo;
+import simacogo.play.SearchOptions;
+
+/*
+ * Monte Carlo against alpha-beta. First prints playouts per second on the
+ * standard position for random and greedy playouts at 1..maxThreads
+ * threads, then plays each Monte Carlo budget against each alpha-beta ply
+ * in self-play and prints the score with both sides' average decision
+ * time, so strength can be read against milliseconds spent.
+ *
+ * Usage: MonteCarloBenchmark [games per pairing] [max threads]
+ */
+public class MonteCarloBenchmark {
+
+	private static final String[] MONTE_CARLO = {
+		"mcts:2000:random", "mcts:2000:greedy", "mcts:10000:greedy", "mcts:40000:greedy"
+	};
+	private static final String[] ALPHA_BETA = {"3:ab:tuned", "5:ab:tuned", "7:ab:tuned"};
+	private static final int SPEED_PLAYOUTS = 200000;
+	
+	public static void main(String[] args) throws Exception {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) 
+				: Runtime.getRuntime().availableProcessors();
+		
+		Node position = Corpus.standardPosition();
+		System.out.println("playouts,threads,playoutsPerSecond");
+		for(boolean greedy : new boolean[]{false, true}){
+			for(int threads = 1; threads <= maxThreads; threads *= 2){
+				MonteCarlo engine = new MonteCarlo(SPEED_PLAYOUTS, 0, greedy, 1);
+				SearchOptions options = new SearchOptions(1, false, false);
+				options.setThreads(threads);
+				engine.decide(position, options);
+				long start = System.nanoTime();
+				engine.decide(position, options);
+				double seconds = (System.nanoTime() - start) / 1e9;
+				System.out.println((greedy ? "greedy," : "random,") + threads + "," 
+						+ String.format("%.0f", engine.getPlayouts() / seconds));
+			}
+		}
+		
+		System.out.println();
+		System.out.println("monteCarlo,alphaBeta,wins,draws,losses,mctsAvgMillis,abAvgMillis");
+		int threads = Runtime.getRuntime().availableProcessors();
+		for(String mcts : MONTE_CARLO){
+			for(String alphaBeta : ALPHA_BETA){
+				MatchRunner runner = new MatchRunner(EngineConfig.parse(mcts), 
+						EngineConfig.parse(alphaBeta), 4, 2016);
+				MatchRunner.MatchResult result = runner.run(games, threads);
+				System.out.println(mcts + "," + alphaBeta + "," + result.getWins() + "," 
+						+ result.getDraws() + "," + result.getLosses() + "," 
+						+ String.format("%.2f", result.averageMillis(true)) + "," 
+						+ String.format("%.2f", result.averageMillis(false)));
+			}
+		}
+	}
+}
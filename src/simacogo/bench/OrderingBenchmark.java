@@ -0,0 +1,63 @@
+package simacogo.bench;
+
+import simacogo.framework.Node;
+import simacogo.play.Minimax;
+import simacogo.play.SearchOptions;
+import simacogo.play.TranspositionTable;
+
+/*
+ * Nodes visited by the make/unmake alpha-beta at each ply, with no move
+ * ordering, with each heuristic alone, and with all of them. Every cell is
+ * a fresh fixed-depth search with a fresh table, and the percentage is the
+ * reduction against the unordered search at the same ply.
+ *
+ * Usage: OrderingBenchmark [maxDepth]
+ */
+public class OrderingBenchmark {
+
+	private static final String[] CONFIGS = 
+		{"none", "table", "points", "killers", "history", "all"};
+	
+	public static void main(String[] args) {
+		int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+		Node node = Corpus.standardPosition();
+		Minimax minimax = new Minimax();
+		
+		StringBuilder header = new StringBuilder("ply");
+		for(String config : CONFIGS)
+			header.append(',').append(config);
+		System.out.println(header);
+		
+		for(int depth = 1; depth <= maxDepth; depth++){
+			StringBuilder row = new StringBuilder(Integer.toString(depth));
+			long unordered = 0;
+			for(String config : CONFIGS){
+				SearchOptions options = options(config, depth);
+				minimax.decide(node, options);
+				long nodes = minimax.getNodeCount();
+				if(config.equals("none"))
+					unordered = nodes;
+				row.append(',').append(nodes);
+				if(!config.equals("none"))
+					row.append(String.format(" (-%.0f%%)", 100.0 * (unordered - nodes) / unordered));
+			}
+			System.out.println(row);
+		}
+	}
+	
+	private static SearchOptions options(String config, int depth){
+		SearchOptions options = new SearchOptions(depth, true, false);
+		options.setMakeUnmake(true);
+		options.setTranspositionTable(new TranspositionTable(18, 
+				TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+		if(config.equals("table") || config.equals("all"))
+			options.setOrderTableMove(true);
+		if(config.equals("points") || config.equals("all"))
+			options.setOrderByPoints(true);
+		if(config.equals("killers") || config.equals("all"))
+			options.setKillerMoves(true);
+		if(config.equals("history") || config.equals("all"))
+			options.setHistoryHeuristic(true);
+		return options;
+	}
+}
@@ -0,0 +1,196 @@
+package simacogo.bench;
+
+import simacogo.framework.BoardGeometry;
+import simacogo.server.GameServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Load generator for GameServer. Opens a number of connections, each
+ * playing many games at once with every game's move in flight together,
+ * plays random legal moves to the end, and prints throughput, move latency
+ * percentiles and how many moves the server turned away as BUSY.
+ *
+ * Without a host it starts a server in this JVM on a free port.
+ *
+ * Usage: ServerLoadGenerator [connections] [games per connection] [ply] [host] [port]
+ */
+public class ServerLoadGenerator {
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	
+	public static void main(String[] args) throws Exception {
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int games = args.length > 1 ? Integer.parseInt(args[1]) : 250;
+		int ply = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		String host = args.length > 3 ? args[3] : null;
+		int port = args.length > 4 ? Integer.parseInt(args[4]) : GameServer.DEFAULT_PORT;
+		
+		GameServer server = null;
+		if(host == null){
+			int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+			server = new GameServer(0, threads, 256, connections * games);
+			Thread selector = new Thread(server, "simacogo-selector");
+			selector.setDaemon(true);
+			selector.start();
+			host = "localhost";
+			port = server.getPort();
+		}
+		
+		ExecutorService clients = Executors.newFixedThreadPool(connections);
+		List<Future<Client>> futures = new ArrayList<Future<Client>>();
+		long start = System.nanoTime();
+		for(int i = 0; i < connections; i++){
+			Client client = new Client(host, port, games, ply, i);
+			futures.add(clients.submit(() -> {
+				client.play();
+				return client;
+			}));
+		}
+		long moves = 0, busy = 0, errors = 0;
+		long[] latencies = new long[0];
+		for(Future<Client> future : futures){
+			Client client = future.get();
+			moves += client.moves;
+			busy += client.busy;
+			errors += client.errors;
+			int from = latencies.length;
+			latencies = Arrays.copyOf(latencies, from + client.moves);
+			System.arraycopy(client.latencies, 0, latencies, from, client.moves);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		clients.shutdown();
+		
+		Arrays.sort(latencies);
+		System.out.println((connections * games) + " games, " + moves + " moves in " 
+				+ String.format("%.2f", seconds) + " s (" + String.format("%.0f", moves / seconds) 
+				+ " moves/s)");
+		System.out.println("Move latency ms: p50 " + millis(latencies, 50) + ", p90 " 
+				+ millis(latencies, 90) + ", p99 " + millis(latencies, 99) + ", max " 
+				+ millis(latencies, 100));
+		System.out.println("BUSY replies " + busy + ", errors " + errors);
+		if(server != null)
+			server.close();
+	}
+	
+	private static String millis(long[] sorted, double percentile){
+		if(sorted.length == 0)
+			return "-";
+		int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+		return String.format("%.2f", sorted[Math.max(0, rank - 1)] / 1e6);
+	}
+	
+	/*
+	 * One connection's games. Keeps its own column heights per game to pick
+	 * legal moves, and retries a BUSY move after a short pause.
+	 */
+	private static final class Client {
+		final String host;
+		final int port;
+		final int games;
+		final int ply;
+		final Random random;
+		int moves;
+		int busy;
+		int errors;
+		long[] latencies = new long[1024];
+		
+		Client(String host, int port, int games, int ply, int seed){
+			this.host = host;
+			this.port = port;
+			this.games = games;
+			this.ply = ply;
+			this.random = new Random(seed);
+		}
+		
+		void play() throws IOException, InterruptedException {
+			try(Socket socket = new Socket(host, port)){
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+				Writer writer = new BufferedWriter(
+						new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+				PrintWriter out = new PrintWriter(writer);
+				
+				Map<Long, int[]> heights = new HashMap<Long, int[]>();
+				Map<Long, Integer> columns = new HashMap<Long, Integer>();
+				Map<Long, Long> sentAt = new HashMap<Long, Long>();
+				for(int i = 0; i < games; i++)
+					out.print("NEW " + ply + "\n");
+				out.flush();
+				for(int i = 0; i < games; i++){
+					String[] reply = in.readLine().split(" ");
+					if(!reply[0].equals("OK"))
+						throw new IOException("could not start a game: " + String.join(" ", reply));
+					heights.put(Long.parseLong(reply[1]), new int[COLUMNS]);
+				}
+				for(long id : heights.keySet())
+					send(out, id, heights.get(id), columns, sentAt);
+				out.flush();
+				
+				int finished = 0;
+				while(finished < games){
+					String[] reply = in.readLine().split(" ");
+					long id = Long.parseLong(reply[1]);
+					if(reply[0].equals("MOVED")){
+						record(System.nanoTime() - sentAt.get(id));
+						int[] height = heights.get(id);
+						height[columns.get(id)]++;
+						int answer = Integer.parseInt(reply[2]);
+						if(answer > 0)
+							height[answer - 1]++;
+						if(reply[5].equals("OVER")){
+							finished++;
+							out.print("QUIT " + id + "\n");
+						} else
+							send(out, id, height, columns, sentAt);
+					} else if(reply[0].equals("BUSY")){
+						busy++;
+						Thread.sleep(1);
+						out.print("MOVE " + id + " " + (columns.get(id) + 1) + "\n");
+						sentAt.put(id, System.nanoTime());
+					} else if(reply[0].equals("ERR")){
+						errors++;
+						finished++;
+					}
+					out.flush();
+				}
+			}
+		}
+		
+		//Sends a random legal move for one game.
+		private void send(PrintWriter out, long id, int[] height, 
+						  Map<Long, Integer> columns, Map<Long, Long> sentAt){
+			int y;
+			do {
+				y = random.nextInt(COLUMNS);
+			} while(height[y] == ROWS);
+			columns.put(id, y);
+			sentAt.put(id, System.nanoTime());
+			out.print("MOVE " + id + " " + (y + 1) + "\n");
+		}
+		
+		private void record(long nanos){
+			if(moves == latencies.length)
+				latencies = Arrays.copyOf(latencies, moves * 2);
+			latencies[moves++] = nanos;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package simacogo.bench;
+
+import simacogo.framework.Node;
+import simacogo.framework.TerminalTest;
+import simacogo.play.GameEngine;
+import simacogo.play.Minimax;
+import simacogo.play.SearchOptions;
+import simacogo.play.TranspositionTable;
+
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Nodes saved by keeping the engine between turns. Plays whole games
+ * between a GameEngine as O and a fixed 3-ply alpha-beta as X, from seeded
+ * random openings, comparing every O turn with the same search started
+ * cold. Prints the saving per game and over all of them, per ply.
+ *
+ * Usage: TurnReuseBenchmark [max ply] [games per ply]
+ */
+public class TurnReuseBenchmark {
+
+	private static final int MIN_PLY = 5;
+	private static final int OPENING_PLIES = 4;
+	private static final long SEED = 2016;
+
+	public static void main(String[] args) {
+		int maxPly = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+		int games = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+		System.out.println("ply,game,turns,warmNodes,coldNodes,savedPercent");
+		for(int ply = MIN_PLY; ply <= maxPly; ply += 2){
+			long warm = 0, cold = 0;
+			for(int game = 0; game < games; game++){
+				GameEngine engine = playGame(ply, new Random(SEED + game));
+				long gameWarm = 0, gameCold = 0;
+				for(GameEngine.TurnReport report : engine.getReports()){
+					gameWarm += report.getWarmNodes();
+					gameCold += report.getColdNodes();
+				}
+				warm += gameWarm;
+				cold += gameCold;
+				System.out.println(ply + "," + game + "," + engine.getReports().size() + ","
+						+ gameWarm + "," + gameCold + "," + percent(gameCold - gameWarm, gameCold));
+			}
+			System.out.println(ply + ",all,," + warm + "," + cold + "," + percent(cold - warm, cold));
+		}
+	}
+
+	private static GameEngine playGame(int ply, Random random){
+		SearchOptions options = new SearchOptions(ply, true, false);
+		options.setMakeUnmake(true);
+		options.setTranspositionTable(new TranspositionTable(20,
+				TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+		options.setMoveOrdering(true);
+		options.setSymmetry(true);
+		GameEngine engine = new GameEngine(options, true);
+
+		Minimax opponent = new Minimax();
+		SearchOptions opponentOptions = new SearchOptions(3, true, false);
+		opponentOptions.setMakeUnmake(true);
+
+		Node node = new Node();
+		for(int i = 0; i < OPENING_PLIES; i++){
+			List<Node> children = node.getChildren();
+			node = children.get(random.nextInt(children.size()));
+		}
+		while(!TerminalTest.isTerminalStateFast(node)){
+			int y;
+			if(node.getAction().playerIsX)
+				y = engine.decide(node).getColumn();
+			else
+				y = opponent.decide(node.swapPlayers(), opponentOptions);
+			for(Node child : node.getChildren()){
+				if(child.getAction().getyCoord() == y){
+					node = child;
+					break;
+				}
+			}
+		}
+		return engine;
+	}
+
+	private static String percent(long part, long whole){
+		return String.format("%.1f", whole == 0 ? 0.0 : 100.0 * part / whole);
+	}
+}
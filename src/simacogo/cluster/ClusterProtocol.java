@@ -0,0 +1,95 @@
+package simacogo.cluster;
+
+import simacogo.framework.Action;
+import simacogo.framework.BoardGeometry;
+import simacogo.framework.Node;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/*
+ * The binary protocol between a SearchCoordinator and its SearchWorkers,
+ * over one TCP connection per worker. Workers connect to the coordinator
+ * and say HELLO; from then on the coordinator sends one job at a time.
+ *
+ * Coordinator to worker:
+ *   JOB      int id, byte depth, int alpha, int beta, position
+ *   CANCEL   int id
+ * Worker to coordinator:
+ *   HELLO    int version
+ *   RESULT   int id, int value, long nodes
+ *   CANCELLED int id
+ *
+ * A position is 26 bytes: a flags byte (bit 0 set when X is to move), the
+ * X and O scores as shorts, then the 81 cells top row first, four to a
+ * byte, two bits each (0 empty, 1 X, 2 O). Values are O score minus X
+ * score, fail-soft outside the job's window like Minimax.searchWindow.
+ */
+public final class ClusterProtocol {
+
+	public static final int VERSION = 1;
+
+	public static final byte HELLO = 1;
+	public static final byte JOB = 2;
+	public static final byte CANCEL = 3;
+	public static final byte RESULT = 4;
+	public static final byte CANCELLED = 5;
+
+	public static final int POSITION_BYTES = 5 + 21;
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final char EMPTY = '\u00B7';
+	private static final int X_TO_MOVE = 1;
+	private static final int CELL_X = 1;
+	private static final int CELL_O = 2;
+
+	private ClusterProtocol(){
+	}
+
+	/*
+	 * Writes node as a position. The side to move is the one that did not
+	 * make the node's action.
+	 */
+	public static void writePosition(DataOutputStream out, Node node) throws IOException {
+		out.writeByte(node.getAction().playerIsX ? 0 : X_TO_MOVE);
+		out.writeShort(node.getXScore());
+		out.writeShort(node.getOScore());
+		char[][] state = node.getState();
+		int packed = 0;
+		int cell = 0;
+		for(int x = 0; x < ROWS; x++){
+			for(int y = 0; y < COLUMNS; y++){
+				int code = state[x][y] == 'X' ? CELL_X : state[x][y] == 'O' ? CELL_O : 0;
+				packed |= code << ((cell & 3) * 2);
+				if((++cell & 3) == 0){
+					out.writeByte(packed);
+					packed = 0;
+				}
+			}
+		}
+		out.writeByte(packed);
+	}
+
+	//Reads a position written by writePosition back into a Node.
+	public static Node readPosition(DataInputStream in) throws IOException {
+		boolean xToMove = (in.readByte() & X_TO_MOVE) != 0;
+		int xScore = in.readShort();
+		int oScore = in.readShort();
+		char[][] state = new char[ROWS][COLUMNS];
+		int packed = 0;
+		int cell = 0;
+		for(int x = 0; x < ROWS; x++){
+			for(int y = 0; y < COLUMNS; y++){
+				if((cell & 3) == 0)
+					packed = in.readUnsignedByte();
+				int code = (packed >>> ((cell & 3) * 2)) & 3;
+				state[x][y] = code == CELL_X ? 'X' : code == CELL_O ? 'O' : EMPTY;
+				cell++;
+			}
+		}
+		//the action only records who moved last
+		return new Node(xScore, oScore, state, new Action(0, 0, xToMove ? 'O' : 'X'));
+	}
+}
@@ -0,0 +1,619 @@
+package simacogo.cluster;
+
+import simacogo.framework.Node;
+import simacogo.framework.TerminalTest;
+import simacogo.play.Minimax;
+import simacogo.play.SearchOptions;
+import simacogo.play.SearchResult;
+import simacogo.play.TranspositionTable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Coordinator of a distributed search. Worker processes (SearchWorker)
+ * connect to it over TCP; a search splits the tree at a chosen split depth
+ * and farms the positions there out to the workers, one at a time each,
+ * while the coordinator runs the top of the tree itself.
+ *
+ * The coordinator keeps an interval for every node of the split tree, the
+ * values it can still have given what the workers have sent back: a leaf
+ * starts unbounded, and a value that fails low or high against the job's
+ * window only narrows one side. From the intervals it derives an
+ * alpha-beta window for every leaf, the range its value has to fall in to
+ * change the root. Leaves are handed out with their current window; a leaf
+ * whose window has closed, or whose interval no longer meets it, needs no
+ * more work, and is cancelled if a worker is still searching it. A leaf
+ * that came back as a bound but still matters goes back in the queue.
+ *
+ * When a worker's connection drops, its leaf goes back in the queue for
+ * the others. A search ends when the root's interval is a single value.
+ */
+public class SearchCoordinator implements Closeable {
+
+	public static final int DEFAULT_PORT = 9191;
+
+	private final ServerSocket serverSocket;
+	private final Thread acceptor;
+
+	//Guarded by this: connected workers, and the search they are working on
+	private final List<WorkerLink> workers = new ArrayList<WorkerLink>();
+	private boolean closed;
+	private SplitNode root;
+	private List<SplitNode> leaves;
+	private int nextJobId;
+
+	//Counters for the last search, guarded by this
+	private long nodeCount;
+	private int jobs;
+	private int cancels;
+	private int requeues;
+
+	/*
+	 * Listens for workers on the loopback interface. Port 0 picks a free
+	 * port; read it back with getPort.
+	 */
+	public SearchCoordinator(int port) throws IOException {
+		this(InetAddress.getLoopbackAddress(), port);
+	}
+
+	public SearchCoordinator(InetAddress bindAddress, int port) throws IOException {
+		this.serverSocket = new ServerSocket(port, 50, bindAddress);
+		this.acceptor = new Thread(this::accept, "simacogo-coordinator-accept");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	//Accepts worker connections until closed, one thread each.
+	private void accept(){
+		try {
+			while(true){
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				Thread thread = new Thread(new WorkerLink(socket), "simacogo-coordinator-link");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		} catch (IOException e) {
+			//server socket closed
+		}
+	}
+
+	/*
+	 * Searches node to depth plies, handing out the positions splitDepth
+	 * plies down as jobs. The split depth is kept between 1 and depth - 1.
+	 * Returns the best column for the side to move and the minimax value,
+	 * O score minus X score. Only one search runs at a time.
+	 *
+	 * Throws IllegalStateException when the search cannot finish: the
+	 * coordinator was closed, or work is left and no worker is connected to
+	 * do it, including when the last one drops mid-search. Callers that
+	 * must have a move can fall back to a local search.
+	 */
+	public SearchResult search(Node node, int depth, int splitDepth)
+			throws InterruptedException {
+		if(depth < 2)
+			throw new IllegalArgumentException("depth must be at least 2");
+		List<PendingCancel> cancelled = new ArrayList<PendingCancel>();
+		try {
+			synchronized(this){
+				if(root != null)
+					throw new IllegalStateException("a search is already running");
+				int split = Math.max(1, Math.min(splitDepth, depth - 1));
+				nodeCount = 0;
+				jobs = 0;
+				cancels = 0;
+				requeues = 0;
+				leaves = new ArrayList<SplitNode>();
+				root = build(node, -1, depth, split);
+				refresh();
+				try {
+					return await(depth);
+				} finally {
+					for(SplitNode leaf : leaves){
+						if(leaf.worker != null && !leaf.cancelSent){
+							leaf.cancelSent = true;
+							cancelled.add(new PendingCancel(leaf.worker, leaf.jobId));
+						}
+					}
+					root = null;
+					leaves = null;
+					notifyAll();
+				}
+			}
+		} finally {
+			send(cancelled);
+		}
+	}
+
+	//Waits, holding the monitor between wakeups, until the root's value is known.
+	private SearchResult await(int depth) throws InterruptedException {
+		while(root.lo != root.hi){
+			if(closed)
+				throw new IllegalStateException("coordinator closed");
+			if(!hasWork())
+				throw new IllegalStateException("search stalled with the root at "
+						+ root.lo + " to " + root.hi);
+			if(workers.isEmpty())
+				throw new IllegalStateException("no workers left with the root at "
+						+ root.lo + " to " + root.hi);
+			wait();
+		}
+		int value = root.lo;
+		int column = -1;
+		for(SplitNode child : root.children){
+			if((root.maxPlayer ? child.lo : child.hi) == value){
+				column = child.column;
+				break;
+			}
+		}
+		return new SearchResult(column, value, depth, nodeCount);
+	}
+
+	/*
+	 * The split tree below node. Full boards become settled leaves at once,
+	 * positions splitLeft plies down become leaves for the workers.
+	 */
+	private SplitNode build(Node node, int column, int depth, int splitLeft){
+		SplitNode split = new SplitNode(node, column, depth);
+		if(TerminalTest.isTerminalStateFast(node)){
+			split.lo = split.hi = node.getOScore() - node.getXScore();
+			return split;
+		}
+		if(splitLeft == 0){
+			leaves.add(split);
+			return split;
+		}
+		for(Node child : node.getChildren())
+			split.children.add(build(child, child.getAction().getyCoord(), depth - 1, splitLeft - 1));
+		return split;
+	}
+
+	/*
+	 * Recomputes every interval and window after a change and wakes anyone
+	 * waiting for work or for the result. Returns the running jobs that can
+	 * no longer matter; the caller sends their cancels once it has left the
+	 * monitor, so a slow worker socket never holds up the others.
+	 */
+	private List<PendingCancel> refresh(){
+		List<PendingCancel> cancelled = new ArrayList<PendingCancel>();
+		if(root != null){
+			bounds(root);
+			windows(root, Integer.MIN_VALUE, Integer.MAX_VALUE);
+			for(SplitNode leaf : leaves){
+				if(leaf.worker != null && !leaf.cancelSent && !leaf.needsWork()){
+					leaf.cancelSent = true;
+					cancelled.add(new PendingCancel(leaf.worker, leaf.jobId));
+				}
+			}
+		}
+		notifyAll();
+		return cancelled;
+	}
+
+	//Sends cancels collected under the monitor. Must be called without holding it.
+	private static void send(List<PendingCancel> cancelled){
+		for(PendingCancel cancel : cancelled)
+			cancel.worker.cancel(cancel.jobId);
+	}
+
+	//Intervals of the inner nodes from their children's, bottom up.
+	private static void bounds(SplitNode node){
+		if(node.children.isEmpty())
+			return;
+		int lo = node.maxPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		int hi = lo;
+		for(SplitNode child : node.children){
+			bounds(child);
+			lo = node.maxPlayer ? Math.max(lo, child.lo) : Math.min(lo, child.lo);
+			hi = node.maxPlayer ? Math.max(hi, child.hi) : Math.min(hi, child.hi);
+		}
+		node.lo = lo;
+		node.hi = hi;
+	}
+
+	/*
+	 * Windows top down. Below a max node a child only matters above the
+	 * best value a sibling is already sure of, below a min node only under
+	 * the lowest value a sibling can at most have.
+	 */
+	private static void windows(SplitNode node, int alpha, int beta){
+		node.alpha = alpha;
+		node.beta = beta;
+		for(SplitNode child : node.children){
+			int childAlpha = alpha;
+			int childBeta = beta;
+			for(SplitNode sibling : node.children){
+				if(sibling == child)
+					continue;
+				if(node.maxPlayer)
+					childAlpha = Math.max(childAlpha, sibling.lo);
+				else
+					childBeta = Math.min(childBeta, sibling.hi);
+			}
+			windows(child, childAlpha, childBeta);
+		}
+	}
+
+	//Whether any leaf is being searched or still needs to be.
+	private boolean hasWork(){
+		for(SplitNode leaf : leaves){
+			if(leaf.worker != null || leaf.needsWork())
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Blocks until there is a leaf for this worker and assigns it, or
+	 * returns null once the coordinator is closed.
+	 */
+	private synchronized SplitNode nextJob(WorkerLink link) throws InterruptedException {
+		while(!closed){
+			if(root != null && root.lo != root.hi){
+				for(SplitNode leaf : leaves){
+					if(leaf.worker == null && leaf.needsWork()){
+						leaf.worker = link;
+						leaf.jobId = ++nextJobId;
+						leaf.sentAlpha = leaf.alpha;
+						leaf.sentBeta = leaf.beta;
+						leaf.cancelSent = false;
+						link.job = leaf;
+						jobs++;
+						return leaf;
+					}
+				}
+			}
+			wait();
+		}
+		return null;
+	}
+
+	/*
+	 * A worker's answer for its job: a value, or null when the job was
+	 * cancelled before it finished.
+	 */
+	private void finished(WorkerLink link, Integer value, long nodes){
+		List<PendingCancel> cancelled;
+		synchronized(this){
+			SplitNode leaf = link.job;
+			link.job = null;
+			leaf.worker = null;
+			if(value == null){
+				cancels++;
+			} else {
+				nodeCount += nodes;
+				if(value <= leaf.sentAlpha)
+					leaf.hi = Math.min(leaf.hi, value);
+				else if(value >= leaf.sentBeta)
+					leaf.lo = Math.max(leaf.lo, value);
+				else
+					leaf.lo = leaf.hi = value;
+			}
+			cancelled = refresh();
+		}
+		send(cancelled);
+	}
+
+	//A worker's connection dropped: its job goes back in the queue.
+	private synchronized void lost(WorkerLink link){
+		workers.remove(link);
+		SplitNode leaf = link.job;
+		if(leaf != null){
+			link.job = null;
+			leaf.worker = null;
+			requeues++;
+		}
+		notifyAll();
+	}
+
+	private synchronized void register(WorkerLink link){
+		workers.add(link);
+		notifyAll();
+	}
+
+	/*
+	 * Waits up to timeoutMillis for at least count workers to connect.
+	 * Returns whether they did.
+	 */
+	public synchronized boolean awaitWorkers(int count, long timeoutMillis)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while(workers.size() < count){
+			long left = deadline - System.currentTimeMillis();
+			if(left <= 0)
+				return false;
+			wait(left);
+		}
+		return true;
+	}
+
+	//BEGIN getters and setters
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public synchronized int getWorkerCount() {
+		return workers.size();
+	}
+
+	/*
+	 * Counters for the last search: jobs handed out, jobs cancelled before
+	 * they finished, and jobs put back in the queue after their worker died.
+	 */
+	public synchronized int getJobs() {
+		return jobs;
+	}
+
+	public synchronized int getCancels() {
+		return cancels;
+	}
+
+	public synchronized int getRequeues() {
+		return requeues;
+	}
+	//END getters and setters
+
+	@Override
+	public void close() throws IOException {
+		synchronized(this){
+			closed = true;
+			for(WorkerLink link : workers)
+				link.close();
+			notifyAll();
+		}
+		serverSocket.close();
+	}
+
+	/*
+	 * A node of the split tree. Leaves are positions for the workers; their
+	 * job fields are set while a worker has them.
+	 */
+	private static final class SplitNode {
+
+		final Node node;
+		final int column;
+		final int depth;
+		final boolean maxPlayer;
+		final List<SplitNode> children = new ArrayList<SplitNode>();
+
+		//Values the node can still have, and the window in which it matters
+		int lo = Integer.MIN_VALUE;
+		int hi = Integer.MAX_VALUE;
+		int alpha;
+		int beta;
+
+		WorkerLink worker;
+		int jobId;
+		int sentAlpha;
+		int sentBeta;
+		boolean cancelSent;
+
+		SplitNode(Node node, int column, int depth){
+			this.node = node;
+			this.column = column;
+			this.depth = depth;
+			this.maxPlayer = node.getAction().playerIsX;
+		}
+
+		//Whether a search could still move this leaf's value inside its window.
+		boolean needsWork(){
+			return lo != hi && alpha < beta && hi > alpha && lo < beta;
+		}
+	}
+
+	/*
+	 * A cancel decided under the monitor, to be sent after leaving it. Holds
+	 * the job id, since the leaf may have been handed out again by then.
+	 */
+	private static final class PendingCancel {
+
+		final WorkerLink worker;
+		final int jobId;
+
+		PendingCancel(WorkerLink worker, int jobId){
+			this.worker = worker;
+			this.jobId = jobId;
+		}
+	}
+
+	/*
+	 * One connected worker. Its thread hands the worker a job, waits for
+	 * the answer and reports it, over and over.
+	 */
+	private final class WorkerLink implements Runnable {
+
+		private final Socket socket;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+
+		//Guarded by the coordinator: the leaf this worker is searching
+		SplitNode job;
+
+		WorkerLink(Socket socket) throws IOException {
+			this.socket = socket;
+			this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		@Override
+		public void run(){
+			try {
+				if(in.readByte() != ClusterProtocol.HELLO || in.readInt() != ClusterProtocol.VERSION)
+					throw new IOException("bad handshake");
+				register(this);
+				SplitNode leaf;
+				while((leaf = nextJob(this)) != null){
+					synchronized(out){
+						out.writeByte(ClusterProtocol.JOB);
+						out.writeInt(leaf.jobId);
+						out.writeByte(leaf.depth);
+						out.writeInt(leaf.sentAlpha);
+						out.writeInt(leaf.sentBeta);
+						ClusterProtocol.writePosition(out, leaf.node);
+						out.flush();
+					}
+					byte type = in.readByte();
+					int id = in.readInt();
+					if(id != leaf.jobId)
+						throw new IOException("answer for job " + id + ", expected " + leaf.jobId);
+					if(type == ClusterProtocol.RESULT){
+						int value = in.readInt();
+						long nodes = in.readLong();
+						finished(this, value, nodes);
+					} else if(type == ClusterProtocol.CANCELLED)
+						finished(this, null, 0);
+					else
+						throw new IOException("unknown message " + type);
+				}
+			} catch (IOException | InterruptedException e) {
+				//the worker is gone
+			} finally {
+				lost(this);
+				close();
+			}
+		}
+
+		//Asks the worker to drop a job. A failure shows up on the reading side.
+		void cancel(int jobId){
+			try {
+				synchronized(out){
+					out.writeByte(ClusterProtocol.CANCEL);
+					out.writeInt(jobId);
+					out.flush();
+				}
+			} catch (IOException e) {
+				close();
+			}
+		}
+
+		void close(){
+			try {
+				socket.close();
+			} catch (IOException e) {
+				//already closed
+			}
+		}
+	}
+
+	/*
+	 * Strictly for unit testing. Starts worker JVMs on this machine, searches
+	 * positions from seeded random games with them, and checks every value
+	 * against a single-process search of the same depth, and every column
+	 * against that value. Halfway through, one worker is killed mid-search;
+	 * its jobs have to be taken over by the rest. Last, every worker is
+	 * killed during a search, which has to fail rather than hang.
+	 *
+	 * Usage: SearchCoordinator [workers] [depth] [split depth] [positions]
+	 */
+	public static void main(String[] args) throws Exception {
+		int workerCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int split = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+		int positions = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+
+		List<Process> processes = new ArrayList<Process>();
+		try(SearchCoordinator coordinator = new SearchCoordinator(0)){
+			String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+			for(int i = 0; i < workerCount; i++){
+				processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						SearchWorker.class.getName(), "localhost", String.valueOf(coordinator.getPort()))
+						.inheritIO().start());
+			}
+			if(!coordinator.awaitWorkers(workerCount, 30000)){
+				System.out.println("Only " + coordinator.getWorkerCount() + " workers connected");
+				return;
+			}
+
+			Minimax reference = new Minimax();
+			SearchOptions options = new SearchOptions(depth, true, false);
+			options.setMakeUnmake(true);
+			options.setTranspositionTable(new TranspositionTable());
+			options.setMoveOrdering(true);
+
+			Random random = new Random(2016);
+			int mismatches = 0;
+			for(int i = 0; i < positions; i++){
+				Node node = new Node();
+				for(int move = 0; move < 10 + i; move++){
+					List<Node> children = node.getChildren();
+					node = children.get(random.nextInt(children.size()));
+				}
+				if(i == positions / 2 && processes.size() > 1){
+					Process victim = processes.get(0);
+					Thread killer = new Thread(() -> {
+						try {
+							Thread.sleep(50);
+						} catch (InterruptedException e) {
+							return;
+						}
+						victim.destroyForcibly();
+					});
+					killer.start();
+				}
+
+				long start = System.currentTimeMillis();
+				SearchResult result = coordinator.search(node, depth, split);
+				long millis = System.currentTimeMillis() - start;
+
+				options.setDepth(depth);
+				int expected = reference.searchWindow(node, options,
+						Integer.MIN_VALUE, Integer.MAX_VALUE).getValue();
+				Node chosen = null;
+				for(Node child : node.getChildren()){
+					if(child.getAction().getyCoord() == result.getColumn())
+						chosen = child;
+				}
+				options.setDepth(depth - 1);
+				int columnValue = chosen == null ? Integer.MIN_VALUE : reference.searchWindow(chosen,
+						options, Integer.MIN_VALUE, Integer.MAX_VALUE).getValue();
+				boolean ok = result.getValue() == expected && columnValue == expected;
+				if(!ok)
+					mismatches++;
+				System.out.println("Position " + i + ": value " + result.getValue() + " (expected "
+						+ expected + "), column " + result.getColumn() + " worth " + columnValue
+						+ ", " + result.getNodeCount() + " nodes, " + coordinator.getJobs() + " jobs, "
+						+ coordinator.getCancels() + " cancelled, " + coordinator.getRequeues()
+						+ " requeued, " + coordinator.getWorkerCount() + " workers, " + millis + " ms");
+			}
+
+			//with every worker gone mid-search, the search has to fail instead of waiting forever
+			Thread killer = new Thread(() -> {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					return;
+				}
+				for(Process process : processes)
+					process.destroyForcibly();
+			});
+			killer.start();
+			long start = System.currentTimeMillis();
+			String outcome;
+			try {
+				SearchResult result = coordinator.search(new Node(), depth + 2, split);
+				outcome = "finished before the workers died, value " + result.getValue();
+			} catch (IllegalStateException e) {
+				outcome = "failed: " + e.getMessage();
+			}
+			killer.join();
+			System.out.println("All workers killed: search " + outcome + " after "
+					+ (System.currentTimeMillis() - start) + " ms");
+			System.out.println(mismatches + " mismatches");
+		} finally {
+			for(Process process : processes)
+				process.destroyForcibly();
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package simacogo.cluster;
+
+import simacogo.framework.Node;
+import simacogo.play.Minimax;
+import simacogo.play.SearchOptions;
+import simacogo.play.SearchResult;
+import simacogo.play.TranspositionTable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * One worker process of a distributed search. Connects to a
+ * SearchCoordinator and searches the subtrees it is sent, one at a time,
+ * with Minimax.searchWindow, streaming each value back as soon as it is
+ * known.
+ *
+ * Jobs run on a separate search thread so the connection keeps being read
+ * while one is searched: a CANCEL for the running job stops it at the next
+ * time check. The worker keeps one transposition table for its whole life,
+ * since subtrees of one search share many positions and a stored value is
+ * good for any job that reaches its position.
+ *
+ * Usage: SearchWorker [host] [port]
+ */
+public class SearchWorker implements Closeable, Runnable {
+
+	private static final int TABLE_BITS = 20;
+
+	private final Socket socket;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	private final Minimax minimax = new Minimax();
+	private final SearchOptions options;
+	private final ExecutorService searcher = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "simacogo-worker-search");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	//Guarded by this: job on the search thread, the last job the coordinator cancelled
+	private int running = -1;
+	private int cancelled = -1;
+	private boolean closed;
+
+	public SearchWorker(String host, int port) throws IOException {
+		this.socket = new Socket(host, port);
+		socket.setTcpNoDelay(true);
+		this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		this.options = new SearchOptions(1, true, false);
+		options.setMakeUnmake(true);
+		options.setTranspositionTable(new TranspositionTable(TABLE_BITS,
+				TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+		options.setMoveOrdering(true);
+		options.setSymmetry(true);
+	}
+
+	/*
+	 * Reads jobs and cancellations until the coordinator closes the
+	 * connection.
+	 */
+	@Override
+	public void run(){
+		try {
+			synchronized(out){
+				out.writeByte(ClusterProtocol.HELLO);
+				out.writeInt(ClusterProtocol.VERSION);
+				out.flush();
+			}
+			while(true){
+				byte type = in.readByte();
+				if(type == ClusterProtocol.JOB){
+					int id = in.readInt();
+					int depth = in.readByte();
+					int alpha = in.readInt();
+					int beta = in.readInt();
+					Node node = ClusterProtocol.readPosition(in);
+					searcher.submit(() -> search(id, node, depth, alpha, beta));
+				} else if(type == ClusterProtocol.CANCEL){
+					cancel(in.readInt());
+				} else
+					throw new IOException("unknown message " + type);
+			}
+		} catch (EOFException e) {
+			//coordinator went away
+		} catch (IOException e) {
+			if(!socket.isClosed())
+				System.out.println("Worker connection failed: " + e.getMessage());
+		} finally {
+			close();
+		}
+	}
+
+	/*
+	 * The coordinator cancelled job id: stops it if it is running, and
+	 * keeps it from starting if it is still queued.
+	 */
+	private synchronized void cancel(int id){
+		cancelled = id;
+		if(running == id)
+			minimax.stop();
+	}
+
+	/*
+	 * Publishes job id as running and clears any earlier stop, in one step
+	 * under the lock cancel() takes, so a cancel for this job either finds
+	 * it running or marked cancelled and is never lost. Returns whether the
+	 * job should be searched.
+	 */
+	private synchronized boolean begin(int id){
+		if(closed || cancelled == id)
+			return false;
+		running = id;
+		minimax.clearStop();
+		return true;
+	}
+
+	private synchronized void end(){
+		running = -1;
+	}
+
+	//Searches one job on the search thread and sends back its value.
+	private void search(int id, Node node, int depth, int alpha, int beta){
+		SearchResult result = null;
+		if(begin(id)){
+			options.setDepth(depth);
+			result = minimax.searchWindow(node, options, alpha, beta);
+			end();
+		}
+		try {
+			synchronized(out){
+				if(result == null){
+					out.writeByte(ClusterProtocol.CANCELLED);
+					out.writeInt(id);
+				} else {
+					out.writeByte(ClusterProtocol.RESULT);
+					out.writeInt(id);
+					out.writeInt(result.getValue());
+					out.writeLong(result.getNodeCount());
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			close();
+		}
+	}
+
+	@Override
+	public void close(){
+		synchronized(this){
+			closed = true;
+			minimax.stop();
+		}
+		searcher.shutdownNow();
+		try {
+			socket.close();
+		} catch (IOException e) {
+			//already closed
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		String host = args.length > 0 ? args[0] : "localhost";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : SearchCoordinator.DEFAULT_PORT;
+		new SearchWorker(host, port).run();
+	}
+}
@@ -0,0 +1,187 @@
+package simacogo.framework;
+
+/*
+ * Mutable bitboard for searching by making and unmaking moves. One Board is
+ * created from the Node at the root of a search, and every move in the tree
+ * is played and undone on it in place, so no objects are created per node.
+ * Uses the same column-major bit layout as Node.
+ */
+public class Board {
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
+	
+	private long xLo;
+	private long xHi;
+	private long oLo;
+	private long oHi;
+	private final int[] heights = new int[COLUMNS];
+	private int xScore;
+	private int oScore;
+	private boolean xToMove;
+	private int filled;
+	private long hash;
+	private long mirrorHash;
+	
+	//Columns played and the points each one scored, for undo
+	private final int[] moveStack = new int[CELLS];
+	private final int[] pointStack = new int[CELLS];
+	private int moveCount;
+	
+	/*
+	 * Copies a node's position. The player to move is the one that did not
+	 * make the node's action.
+	 */
+	public Board(Node node){
+		this.xLo = node.getXLo();
+		this.xHi = node.getXHi();
+		this.oLo = node.getOLo();
+		this.oHi = node.getOHi();
+		for(int y = 0; y < COLUMNS; y++)
+			heights[y] = node.getHeight(y);
+		this.xScore = node.getXScore();
+		this.oScore = node.getOScore();
+		this.xToMove = !node.getAction().playerIsX;
+		this.filled = node.getFilledCount();
+		this.hash = node.getHash();
+		this.mirrorHash = node.getMirrorHash();
+	}
+	
+	//True if column y still has an open slot.
+	public boolean canPlay(int y){
+		return heights[y] < ROWS;
+	}
+	
+	/*
+	 * Drops the side to move's marker into column y and passes the turn.
+	 * Returns the points the move scored.
+	 */
+	public int play(int y){
+		int x = ROWS - 1 - heights[y];
+		int cell = y * ROWS + x;
+		long lo = cell < 64 ? 1L << cell : 0L;
+		long hi = cell < 64 ? 0L : 1L << (cell - 64);
+		int points;
+		if(xToMove){
+			points = Node.movePoints(xLo, xHi, x, y);
+			xLo |= lo;
+			xHi |= hi;
+			xScore += points;
+		} else {
+			points = Node.movePoints(oLo, oHi, x, y);
+			oLo |= lo;
+			oHi |= hi;
+			oScore += points;
+		}
+		hash ^= Zobrist.key(xToMove, x, y) ^ Zobrist.SIDE;
+		mirrorHash ^= Zobrist.key(xToMove, x, COLUMNS - 1 - y) ^ Zobrist.SIDE;
+		heights[y]++;
+		filled++;
+		moveStack[moveCount] = y;
+		pointStack[moveCount] = points;
+		moveCount++;
+		xToMove = !xToMove;
+		return points;
+	}
+	
+	/*
+	 * Points the side to move would score by dropping into column y, without
+	 * playing the move. Column y must have room.
+	 */
+	public int previewPoints(int y){
+		int x = ROWS - 1 - heights[y];
+		if(xToMove)
+			return Node.movePoints(xLo, xHi, x, y);
+		return Node.movePoints(oLo, oHi, x, y);
+	}
+	
+	/*
+	 * previewPoints for every column at once: points[y] is what the side to
+	 * move would score in column y, or -1 when it is full. Returns the mask
+	 * of columns with room.
+	 */
+	public int scoreAll(int[] points){
+		if(xToMove)
+			return MoveBatch.scoreAll(xLo, xHi, xLo | oLo, xHi | oHi, points);
+		return MoveBatch.scoreAll(oLo, oHi, xLo | oLo, xHi | oHi, points);
+	}
+	
+	//Takes back the last move played.
+	public void undo(){
+		moveCount--;
+		int y = moveStack[moveCount];
+		int points = pointStack[moveCount];
+		xToMove = !xToMove;
+		filled--;
+		heights[y]--;
+		int x = ROWS - 1 - heights[y];
+		int cell = y * ROWS + x;
+		hash ^= Zobrist.key(xToMove, x, y) ^ Zobrist.SIDE;
+		mirrorHash ^= Zobrist.key(xToMove, x, COLUMNS - 1 - y) ^ Zobrist.SIDE;
+		long lo = cell < 64 ? ~(1L << cell) : -1L;
+		long hi = cell < 64 ? -1L : ~(1L << (cell - 64));
+		if(xToMove){
+			xLo &= lo;
+			xHi &= hi;
+			xScore -= points;
+		} else {
+			oLo &= lo;
+			oHi &= hi;
+			oScore -= points;
+		}
+	}
+	
+	//True when every cell is filled.
+	public boolean isFull(){
+		return filled == CELLS;
+	}
+	
+	/*
+	 * Getters for the position.
+	 */
+	public boolean isXToMove(){
+		return xToMove;
+	}
+	
+	public int getXScore(){
+		return xScore;
+	}
+	
+	public int getOScore(){
+		return oScore;
+	}
+	
+	public int getHeight(int y){
+		return heights[y];
+	}
+	
+	public int getFilledCount(){
+		return filled;
+	}
+	
+	//Zobrist hash including the side to move, matches Node.getHash
+	public long getHash(){
+		return hash;
+	}
+	
+	//Hash of the mirror image, matches Node.getMirrorHash
+	public long getMirrorHash(){
+		return mirrorHash;
+	}
+	
+	//The smaller of the two hashes, the same for a position and its mirror
+	public long getCanonicalHash(){
+		return Math.min(hash, mirrorHash);
+	}
+	
+	//True when the canonical hash is the mirror's
+	public boolean isMirrored(){
+		return mirrorHash < hash;
+	}
+	
+	//True when the position is its own mirror image
+	public boolean isSymmetric(){
+		return mirrorHash == hash;
+	}
+}
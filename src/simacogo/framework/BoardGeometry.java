@@ -0,0 +1,185 @@
+package simacogo.framework;
+
+import java.util.Arrays;
+
+/*
+ * Size of a Simacogo board: how many rows each column holds and how many
+ * columns there are. Cells are numbered column-major like Node's
+ * bitboards, cell = y * rows + x, with x the row from the top and y the
+ * column.
+ *
+ * A geometry also holds the neighbour tables scoring reads. Boards of up
+ * to 128 cells get bitmasks of every cell's orthogonal and diagonal
+ * neighbours, split into low and high words like NeighbourMasks, so a drop
+ * is scored with a few popcounts. Every geometry gets lists of neighbour
+ * cells, which the generic board tests one by one.
+ *
+ * The standard 9x9 game is STANDARD; Node, Board and the rest of the
+ * framework are specialized for it. GeometryBoard plays any size.
+ */
+public final class BoardGeometry {
+
+	public static final BoardGeometry STANDARD = new BoardGeometry(9, 9);
+
+	//Largest board the masked fast paths cover: two 64-bit words
+	public static final int MASKED_CELLS = 128;
+
+	private final int rows;
+	private final int columns;
+	private final int cells;
+
+	private final long[] orthoLo;
+	private final long[] orthoHi;
+	private final long[] diagLo;
+	private final long[] diagHi;
+	private final int[][] orthoCells;
+	private final int[][] diagCells;
+
+	public BoardGeometry(int rows, int columns){
+		if(rows < 1 || columns < 1)
+			throw new IllegalArgumentException("unsupported board size " + columns + "x" + rows);
+		this.rows = rows;
+		this.columns = columns;
+		this.cells = rows * columns;
+		boolean masked = cells <= MASKED_CELLS;
+		this.orthoLo = masked ? new long[cells] : null;
+		this.orthoHi = masked ? new long[cells] : null;
+		this.diagLo = masked ? new long[cells] : null;
+		this.diagHi = masked ? new long[cells] : null;
+		this.orthoCells = new int[cells][];
+		this.diagCells = new int[cells][];
+
+		int[] ortho = new int[4];
+		int[] diag = new int[4];
+		for(int x = 0; x < rows; x++){
+			for(int y = 0; y < columns; y++){
+				int cell = cell(x, y);
+				int orthoCount = 0, diagCount = 0;
+				for(int dx = -1; dx <= 1; dx++){
+					for(int dy = -1; dy <= 1; dy++){
+						int nx = x + dx, ny = y + dy;
+						if((dx == 0 && dy == 0) || nx < 0 || ny < 0 || nx >= rows || ny >= columns)
+							continue;
+						int neighbour = cell(nx, ny);
+						boolean diagonal = dx != 0 && dy != 0;
+						if(diagonal)
+							diag[diagCount++] = neighbour;
+						else
+							ortho[orthoCount++] = neighbour;
+						if(masked){
+							long[] lo = diagonal ? diagLo : orthoLo;
+							long[] hi = diagonal ? diagHi : orthoHi;
+							if(neighbour < 64)
+								lo[cell] |= 1L << neighbour;
+							else
+								hi[cell] |= 1L << (neighbour - 64);
+						}
+					}
+				}
+				orthoCells[cell] = Arrays.copyOf(ortho, orthoCount);
+				diagCells[cell] = Arrays.copyOf(diag, diagCount);
+			}
+		}
+	}
+
+	/*
+	 * Parses "<columns>x<rows>", for example "19x13" for 19 columns of 13
+	 * rows. A single number is a square board.
+	 */
+	public static BoardGeometry parse(String text){
+		String[] parts = text.trim().toLowerCase().split("x");
+		try {
+			if(parts.length == 1){
+				int size = Integer.parseInt(parts[0]);
+				return of(size, size);
+			}
+			if(parts.length == 2)
+				return of(Integer.parseInt(parts[1]), Integer.parseInt(parts[0]));
+		} catch (NumberFormatException e) {
+			//fall through
+		}
+		throw new IllegalArgumentException("board size must look like 15x15 or 19x13: " + text);
+	}
+
+	//The geometry with these rows and columns, STANDARD for 9x9.
+	public static BoardGeometry of(int rows, int columns){
+		if(rows == STANDARD.rows && columns == STANDARD.columns)
+			return STANDARD;
+		return new BoardGeometry(rows, columns);
+	}
+
+	//Cell index of row x, column y.
+	public int cell(int x, int y){
+		return y * rows + x;
+	}
+
+	//True when y is a column on this board; input is 0-based.
+	public boolean isValidColumn(int y){
+		return y >= 0 && y < columns;
+	}
+
+	//True when every cell fits in the two-word masks.
+	public boolean isMasked(){
+		return cells <= MASKED_CELLS;
+	}
+
+	//BEGIN getters and setters
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getCells() {
+		return cells;
+	}
+	//END getters and setters
+
+	/*
+	 * Neighbour tables for the boards. The mask arrays are null above
+	 * MASKED_CELLS.
+	 */
+	long[] getOrthoLo(){
+		return orthoLo;
+	}
+
+	long[] getOrthoHi(){
+		return orthoHi;
+	}
+
+	long[] getDiagLo(){
+		return diagLo;
+	}
+
+	long[] getDiagHi(){
+		return diagHi;
+	}
+
+	int[][] getOrthoCells(){
+		return orthoCells;
+	}
+
+	int[][] getDiagCells(){
+		return diagCells;
+	}
+
+	@Override
+	public boolean equals(Object other){
+		if(!(other instanceof BoardGeometry))
+			return false;
+		BoardGeometry geometry = (BoardGeometry) other;
+		return rows == geometry.rows && columns == geometry.columns;
+	}
+
+	@Override
+	public int hashCode(){
+		return rows * 31 + columns;
+	}
+
+	@Override
+	public String toString(){
+		return columns + "x" + rows;
+	}
+}
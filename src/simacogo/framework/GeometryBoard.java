@@ -0,0 +1,392 @@
+package simacogo.framework;
+
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Make/unmake board for any BoardGeometry, the counterpart of Board for
+ * sizes other than 9x9. Columns fill from the bottom, O moves first and
+ * a drop scores 2 points per orthogonal and 1 per diagonal neighbour of
+ * the same marker, as in the standard game.
+ *
+ * create() picks the representation by cell count:
+ *   up to 64 cells   one long per player, scored with the geometry's masks
+ *   up to 128 cells  two longs per player, low and high word like Board
+ *   more             a long[] per player, neighbours tested one by one
+ * The subclasses only store markers and score drops; the move stack,
+ * heights and scores live here.
+ */
+public abstract class GeometryBoard {
+
+	private static final char EMPTY = '\u00B7';
+
+	protected final BoardGeometry geometry;
+	protected final int rows;
+	private final int[] heights;
+	private int xScore;
+	private int oScore;
+	private boolean xToMove;
+	private int filled;
+
+	//Cells played and the points each one scored, for undo
+	private final int[] moveStack;
+	private final int[] pointStack;
+	private int moveCount;
+
+	protected GeometryBoard(BoardGeometry geometry){
+		this.geometry = geometry;
+		this.rows = geometry.getRows();
+		this.heights = new int[geometry.getColumns()];
+		this.moveStack = new int[geometry.getCells()];
+		this.pointStack = new int[geometry.getCells()];
+	}
+
+	//Empty board of this geometry with O to move, on the fastest representation that fits.
+	public static GeometryBoard create(BoardGeometry geometry){
+		return create(geometry, false);
+	}
+	
+	//Empty board with the given side to move first.
+	public static GeometryBoard create(BoardGeometry geometry, boolean xMovesFirst){
+		GeometryBoard board;
+		if(geometry.getCells() <= 64)
+			board = new Board64(geometry);
+		else if(geometry.getCells() <= BoardGeometry.MASKED_CELLS)
+			board = new Board128(geometry);
+		else
+			board = new GenericBoard(geometry);
+		board.xToMove = xMovesFirst;
+		return board;
+	}
+
+	//Empty board on the generic representation whatever the size, to check the fast paths against.
+	static GeometryBoard createGeneric(BoardGeometry geometry){
+		return new GenericBoard(geometry);
+	}
+
+	/*
+	 * Sets the side to move's bit for cell and returns the points the drop
+	 * scores against that side's markers already on the board.
+	 */
+	protected abstract int drop(int cell, boolean x);
+
+	//Clears the bit drop set.
+	protected abstract void lift(int cell, boolean x);
+
+	//Whether the given side has a marker on cell.
+	protected abstract boolean has(int cell, boolean x);
+
+	//True if column y still has an open slot.
+	public boolean canPlay(int y){
+		return heights[y] < rows;
+	}
+
+	/*
+	 * Drops the side to move's marker into column y and passes the turn.
+	 * Returns the points the move scored.
+	 */
+	public int play(int y){
+		int cell = geometry.cell(rows - 1 - heights[y], y);
+		int points = drop(cell, xToMove);
+		if(xToMove)
+			xScore += points;
+		else
+			oScore += points;
+		heights[y]++;
+		filled++;
+		moveStack[moveCount] = y;
+		pointStack[moveCount] = points;
+		moveCount++;
+		xToMove = !xToMove;
+		return points;
+	}
+
+	//Takes back the last move played.
+	public void undo(){
+		moveCount--;
+		int y = moveStack[moveCount];
+		int points = pointStack[moveCount];
+		xToMove = !xToMove;
+		filled--;
+		heights[y]--;
+		lift(geometry.cell(rows - 1 - heights[y], y), xToMove);
+		if(xToMove)
+			xScore -= points;
+		else
+			oScore -= points;
+	}
+
+	//True when every cell is filled.
+	public boolean isFull(){
+		return filled == geometry.getCells();
+	}
+
+	/*
+	 * Getters for the position.
+	 */
+	public BoardGeometry getGeometry(){
+		return geometry;
+	}
+
+	public boolean isXToMove(){
+		return xToMove;
+	}
+
+	public int getXScore(){
+		return xScore;
+	}
+
+	public int getOScore(){
+		return oScore;
+	}
+
+	public int getHeight(int y){
+		return heights[y];
+	}
+
+	public int getFilledCount(){
+		return filled;
+	}
+
+	//Marker at row x, column y: 'X', 'O' or the interpunct for an empty cell.
+	public char getMarker(int x, int y){
+		int cell = geometry.cell(x, y);
+		if(has(cell, true))
+			return 'X';
+		if(has(cell, false))
+			return 'O';
+		return EMPTY;
+	}
+
+	/*
+	 * Print the column numbers, then the board, like Node.printBoard. Column
+	 * numbers above 9 take two characters, so wide boards pad every cell.
+	 */
+	public void printBoard(){
+		int columns = geometry.getColumns();
+		String format = columns > 9 ? "%-3s" : "%-2s";
+		for(int y = 0; y < columns; y++)
+			System.out.print(String.format(format, y + 1));
+		for(int x = 0; x < rows; x++){
+			System.out.println();
+			for(int y = 0; y < columns; y++)
+				System.out.print(String.format(format, getMarker(x, y)));
+		}
+		System.out.println('\n');
+	}
+
+	/*
+	 * Up to 64 cells: each player's markers in one word.
+	 */
+	private static final class Board64 extends GeometryBoard {
+
+		private final long[] ortho;
+		private final long[] diag;
+		private long xBits;
+		private long oBits;
+
+		Board64(BoardGeometry geometry){
+			super(geometry);
+			this.ortho = geometry.getOrthoLo();
+			this.diag = geometry.getDiagLo();
+		}
+
+		@Override
+		protected int drop(int cell, boolean x){
+			long own = x ? xBits : oBits;
+			int points = 2 * Long.bitCount(ortho[cell] & own) + Long.bitCount(diag[cell] & own);
+			if(x)
+				xBits |= 1L << cell;
+			else
+				oBits |= 1L << cell;
+			return points;
+		}
+
+		@Override
+		protected void lift(int cell, boolean x){
+			if(x)
+				xBits &= ~(1L << cell);
+			else
+				oBits &= ~(1L << cell);
+		}
+
+		@Override
+		protected boolean has(int cell, boolean x){
+			return ((x ? xBits : oBits) & 1L << cell) != 0;
+		}
+	}
+
+	/*
+	 * Up to 128 cells: cells 0-63 in the low word, the rest in the high one.
+	 */
+	private static final class Board128 extends GeometryBoard {
+
+		private final long[] orthoLo;
+		private final long[] orthoHi;
+		private final long[] diagLo;
+		private final long[] diagHi;
+		private long xLo;
+		private long xHi;
+		private long oLo;
+		private long oHi;
+
+		Board128(BoardGeometry geometry){
+			super(geometry);
+			this.orthoLo = geometry.getOrthoLo();
+			this.orthoHi = geometry.getOrthoHi();
+			this.diagLo = geometry.getDiagLo();
+			this.diagHi = geometry.getDiagHi();
+		}
+
+		@Override
+		protected int drop(int cell, boolean x){
+			long lo = x ? xLo : oLo;
+			long hi = x ? xHi : oHi;
+			int ortho = Long.bitCount(orthoLo[cell] & lo) + Long.bitCount(orthoHi[cell] & hi);
+			int diag = Long.bitCount(diagLo[cell] & lo) + Long.bitCount(diagHi[cell] & hi);
+			long bitLo = cell < 64 ? 1L << cell : 0L;
+			long bitHi = cell < 64 ? 0L : 1L << (cell - 64);
+			if(x){
+				xLo |= bitLo;
+				xHi |= bitHi;
+			} else {
+				oLo |= bitLo;
+				oHi |= bitHi;
+			}
+			return 2 * ortho + diag;
+		}
+
+		@Override
+		protected void lift(int cell, boolean x){
+			long lo = cell < 64 ? ~(1L << cell) : -1L;
+			long hi = cell < 64 ? -1L : ~(1L << (cell - 64));
+			if(x){
+				xLo &= lo;
+				xHi &= hi;
+			} else {
+				oLo &= lo;
+				oHi &= hi;
+			}
+		}
+
+		@Override
+		protected boolean has(int cell, boolean x){
+			if(cell < 64)
+				return ((x ? xLo : oLo) & 1L << cell) != 0;
+			return ((x ? xHi : oHi) & 1L << (cell - 64)) != 0;
+		}
+	}
+
+	/*
+	 * Any size: markers in word arrays, a drop tests its neighbour cells one
+	 * at a time.
+	 */
+	private static final class GenericBoard extends GeometryBoard {
+
+		private final int[][] orthoCells;
+		private final int[][] diagCells;
+		private final long[] xWords;
+		private final long[] oWords;
+
+		GenericBoard(BoardGeometry geometry){
+			super(geometry);
+			this.orthoCells = geometry.getOrthoCells();
+			this.diagCells = geometry.getDiagCells();
+			int words = (geometry.getCells() + 63) >>> 6;
+			this.xWords = new long[words];
+			this.oWords = new long[words];
+		}
+
+		@Override
+		protected int drop(int cell, boolean x){
+			long[] own = x ? xWords : oWords;
+			int points = 0;
+			for(int neighbour : orthoCells[cell]){
+				if((own[neighbour >>> 6] & 1L << neighbour) != 0)
+					points += 2;
+			}
+			for(int neighbour : diagCells[cell]){
+				if((own[neighbour >>> 6] & 1L << neighbour) != 0)
+					points++;
+			}
+			own[cell >>> 6] |= 1L << cell;
+			return points;
+		}
+
+		@Override
+		protected void lift(int cell, boolean x){
+			(x ? xWords : oWords)[cell >>> 6] &= ~(1L << cell);
+		}
+
+		@Override
+		protected boolean has(int cell, boolean x){
+			return ((x ? xWords : oWords)[cell >>> 6] & 1L << cell) != 0;
+		}
+	}
+
+	/*
+	 * Strictly for unit testing. Plays random games on the 9x9 board against
+	 * Node, then on other sizes against the generic representation, checking
+	 * scores after every move and that undoing the whole game restores an
+	 * empty board.
+	 */
+	public static void main(String[] args){
+		Random random = new Random(1);
+		int positions = 0;
+		int mismatches = 0;
+		for(int game = 0; game < 200; game++){
+			Node node = new Node();
+			GeometryBoard board = create(BoardGeometry.STANDARD);
+			while(!TerminalTest.isTerminalStateFast(node)){
+				List<Node> children = node.getChildren();
+				node = children.get(random.nextInt(children.size()));
+				board.play(node.getAction().getyCoord());
+				positions++;
+				if(board.getXScore() != node.getXScore() || board.getOScore() != node.getOScore())
+					mismatches++;
+			}
+			if(!TerminalTest.isTerminalState(board))
+				mismatches++;
+		}
+		System.out.println("9x9 against Node: " + positions + " positions, " + mismatches + " mismatches");
+
+		String[] sizes = {"1x1", "5x4", "8x8", "7x9", "9x9", "11x11", "16x8", "15x15", "19x13"};
+		for(String size : sizes){
+			BoardGeometry geometry = BoardGeometry.parse(size);
+			positions = 0;
+			mismatches = 0;
+			for(int game = 0; game < 50; game++){
+				GeometryBoard board = create(geometry);
+				GeometryBoard generic = createGeneric(geometry);
+				while(!board.isFull()){
+					int y;
+					do {
+						y = random.nextInt(geometry.getColumns());
+					} while(!board.canPlay(y));
+					if(board.play(y) != generic.play(y))
+						mismatches++;
+					positions++;
+				}
+				if(board.getXScore() != generic.getXScore() || board.getOScore() != generic.getOScore())
+					mismatches++;
+				while(board.getFilledCount() > 0)
+					board.undo();
+				for(int x = 0; x < geometry.getRows(); x++){
+					for(int y = 0; y < geometry.getColumns(); y++){
+						if(board.getMarker(x, y) != EMPTY)
+							mismatches++;
+					}
+				}
+				if(board.getXScore() != 0 || board.getOScore() != 0 || board.isXToMove())
+					mismatches++;
+			}
+			System.out.println(size + " (" + board(geometry) + ") against generic: " + positions
+					+ " moves, " + mismatches + " mismatches");
+		}
+	}
+
+	//Name of the representation create() picks, for the test output.
+	private static String board(BoardGeometry geometry){
+		return create(geometry).getClass().getSimpleName();
+	}
+}
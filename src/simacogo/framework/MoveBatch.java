@@ -0,0 +1,189 @@
+package simacogo.framework;
+
+/*
+ * Scores the drops into every column in one pass. The landing cell of every
+ * column comes out of a few whole-board shifts and masks: a cell is a landing
+ * cell when it is empty and the cell below it is filled or it is on the
+ * bottom row. Each landing cell is then scored with the neighbour masks, with
+ * no per-column height lookups or bounds checks.
+ *
+ * When the jdk.incubator.vector module is present (--add-modules
+ * jdk.incubator.vector) the columns are scored in vector lanes by
+ * VectorMoveBatch, which is loaded by reflection so that this class still
+ * runs without the module. Otherwise, or with -Dsimacogo.scalar=true, the
+ * scalar walk below is used. Both give the same answers.
+ *
+ * Uses the column-major layout of Node and Board: cell y * ROWS + x, row x
+ * counted from the top, so the cell below is the next bit up.
+ */
+public final class MoveBatch {
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
+	private static final long HI_CELLS = (1L << (CELLS - 64)) - 1;
+	private static final long COLUMN_MASK = (1L << ROWS) - 1;
+
+	//Bottom row (x = ROWS - 1) of every column, split into the two words
+	private static final long BOTTOM_LO;
+	private static final long BOTTOM_HI;
+
+	//Column of every cell, so walking the landing bits needs no division
+	private static final int[] COLUMN = new int[CELLS];
+
+	static {
+		for(int cell = 0; cell < COLUMN.length; cell++)
+			COLUMN[cell] = cell / ROWS;
+		long lo = 0, hi = 0;
+		for(int y = 0; y < COLUMNS; y++){
+			int cell = y * ROWS + ROWS - 1;
+			if(cell < 64)
+				lo |= 1L << cell;
+			else
+				hi |= 1L << (cell - 64);
+		}
+		BOTTOM_LO = lo;
+		BOTTOM_HI = hi;
+	}
+
+	/*
+	 * One way of scoring every column, see scoreAll. Implemented by the
+	 * scalar walk and by VectorMoveBatch.
+	 */
+	interface Scorer {
+		int scoreAll(long ownLo, long ownHi, long occupiedLo, long occupiedHi, int[] points);
+	}
+
+	private static final Scorer SCALAR = MoveBatch::scalarScoreAll;
+	private static final Scorer SCORER = loadScorer();
+
+	private MoveBatch(){
+	}
+
+	/*
+	 * The vector scorer when its module can be linked, the scalar one when it
+	 * can't or when simacogo.scalar is set.
+	 */
+	private static Scorer loadScorer(){
+		if(Boolean.getBoolean("simacogo.scalar"))
+			return SCALAR;
+		try {
+			Class<?> type = Class.forName("simacogo.framework.VectorMoveBatch");
+			return (Scorer) type.getDeclaredConstructor().newInstance();
+		} catch(ReflectiveOperationException | LinkageError e){
+			return SCALAR;
+		}
+	}
+
+	//Whether scoreAll runs in vector lanes.
+	public static boolean isVectorized(){
+		return SCORER != SCALAR;
+	}
+
+	//Landing cells of every column with room, low word.
+	public static long landingLo(long occupiedLo, long occupiedHi){
+		long below = (occupiedLo >>> 1) | (occupiedHi << 63);
+		return ~occupiedLo & (below | BOTTOM_LO);
+	}
+
+	//Landing cells of every column with room, high word.
+	public static long landingHi(long occupiedLo, long occupiedHi){
+		return ~occupiedHi & ((occupiedHi >>> 1) | BOTTOM_HI) & HI_CELLS;
+	}
+
+	/*
+	 * Scores a drop into every column for the player whose markers are own,
+	 * on a board whose filled cells are occupied. Sets points[y] to the drop's
+	 * points, or -1 when column y is full. Returns the mask of columns with
+	 * room (bit y).
+	 */
+	public static int scoreAll(long ownLo, long ownHi, long occupiedLo, long occupiedHi, int[] points){
+		return SCORER.scoreAll(ownLo, ownHi, occupiedLo, occupiedHi, points);
+	}
+
+	//scoreAll by walking the landing bits, whatever scorer is loaded.
+	public static int scalarScoreAll(long ownLo, long ownHi, long occupiedLo, long occupiedHi,
+									 int[] points){
+		for(int y = 0; y < COLUMNS; y++)
+			points[y] = -1;
+		int open = 0;
+		for(long bits = landingLo(occupiedLo, occupiedHi); bits != 0; bits &= bits - 1){
+			int cell = Long.numberOfTrailingZeros(bits);
+			int y = COLUMN[cell];
+			points[y] = NeighbourMasks.score(ownLo, ownHi, cell);
+			open |= 1 << y;
+		}
+		for(long bits = landingHi(occupiedLo, occupiedHi); bits != 0; bits &= bits - 1){
+			int cell = 64 + Long.numberOfTrailingZeros(bits);
+			int y = COLUMN[cell];
+			points[y] = NeighbourMasks.score(ownLo, ownHi, cell);
+			open |= 1 << y;
+		}
+		return open;
+	}
+
+	/*
+	 * Points for a drop into column y alone, or -1 when it is full. Used for
+	 * the columns left over after the last full vector.
+	 */
+	static int scoreColumn(long ownLo, long ownHi, long occupiedLo, long occupiedHi, int y){
+		int start = y * ROWS;
+		long column;
+		if(start + ROWS <= 64)
+			column = occupiedLo >>> start;
+		else if(start < 64)
+			column = (occupiedLo >>> start) | (occupiedHi << (64 - start));
+		else
+			column = occupiedHi >>> (start - 64);
+		column &= COLUMN_MASK;
+		long landing = ~column & ((column >>> 1) | (1L << (ROWS - 1))) & COLUMN_MASK;
+		if(landing == 0)
+			return -1;
+		return NeighbourMasks.score(ownLo, ownHi, start + Long.numberOfTrailingZeros(landing));
+	}
+
+	/*
+	 * Strictly for unit testing. Plays random games and checks the batch
+	 * against canPlay and previewPoints column by column at every position,
+	 * and the loaded scorer against the scalar walk.
+	 */
+	public static void main(String[] args) {
+		java.util.Random random = new java.util.Random(22);
+		int[] points = new int[COLUMNS];
+		int[] scalar = new int[COLUMNS];
+		int positions = 0, mismatches = 0;
+		for(int game = 0; game < 500; game++){
+			Node node = new Node();
+			while(!node.isFull()){
+				Board board = new Board(node);
+				int open = board.scoreAll(points);
+				for(int y = 0; y < COLUMNS; y++){
+					boolean room = board.canPlay(y);
+					if(room != ((open & (1 << y)) != 0)
+							|| points[y] != (room ? board.previewPoints(y) : -1))
+						mismatches++;
+				}
+				boolean xMoves = !node.getAction().playerIsX;
+				long ownLo = xMoves ? node.getXLo() : node.getOLo();
+				long ownHi = xMoves ? node.getXHi() : node.getOHi();
+				long occupiedLo = node.getXLo() | node.getOLo();
+				long occupiedHi = node.getXHi() | node.getOHi();
+				if(scalarScoreAll(ownLo, ownHi, occupiedLo, occupiedHi, scalar) != open)
+					mismatches++;
+				for(int y = 0; y < COLUMNS; y++){
+					if(scalar[y] != points[y]
+							|| scoreColumn(ownLo, ownHi, occupiedLo, occupiedHi, y) != points[y])
+						mismatches++;
+				}
+				positions++;
+				int y;
+				do {
+					y = random.nextInt(COLUMNS);
+				} while(!board.canPlay(y));
+				node = node.makeChild(ROWS - 1 - node.getHeight(y), y);
+			}
+		}
+		System.out.println("Batch scoring (" + (isVectorized() ? "vector" : "scalar") + ") on "
+						   + positions + " positions: " + mismatches + " mismatches");
+	}
+}
@@ -0,0 +1,57 @@
+package simacogo.framework;
+
+/*
+ * Precomputed neighbour masks for scoring. For every cell there is a mask
+ * of its orthogonal neighbours (worth 2 points each) and one of its
+ * diagonal neighbours (worth 1 point each), split into the low and high
+ * bitboard words like Node's. Cells on the edge simply have fewer bits
+ * set, so scoring needs no bounds checks.
+ */
+public final class NeighbourMasks {
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
+	
+	private static final long[] ORTHO_LO = new long[CELLS];
+	private static final long[] ORTHO_HI = new long[CELLS];
+	private static final long[] DIAG_LO = new long[CELLS];
+	private static final long[] DIAG_HI = new long[CELLS];
+	
+	static {
+		for(int x = 0; x < ROWS; x++){
+			for(int y = 0; y < COLUMNS; y++){
+				int cell = y * ROWS + x;
+				for(int dx = -1; dx <= 1; dx++){
+					for(int dy = -1; dy <= 1; dy++){
+						int nx = x + dx, ny = y + dy;
+						if((dx == 0 && dy == 0) || nx < 0 || ny < 0 
+								|| nx >= ROWS || ny >= COLUMNS)
+							continue;
+						int neighbour = ny * ROWS + nx;
+						boolean diagonal = dx != 0 && dy != 0;
+						long[] lo = diagonal ? DIAG_LO : ORTHO_LO;
+						long[] hi = diagonal ? DIAG_HI : ORTHO_HI;
+						if(neighbour < 64)
+							lo[cell] |= 1L << neighbour;
+						else
+							hi[cell] |= 1L << (neighbour - 64);
+					}
+				}
+			}
+		}
+	}
+	
+	private NeighbourMasks(){
+	}
+	
+	/*
+	 * Points for a marker dropped at cell, given the bitboard words of the
+	 * player dropping it: 2 * popcount(ortho & own) + popcount(diag & own).
+	 */
+	public static int score(long lo, long hi, int cell){
+		int ortho = Long.bitCount(ORTHO_LO[cell] & lo) + Long.bitCount(ORTHO_HI[cell] & hi);
+		int diag = Long.bitCount(DIAG_LO[cell] & lo) + Long.bitCount(DIAG_HI[cell] & hi);
+		return 2 * ortho + diag;
+	}
+}
@@ -2,19 +2,45 @@ package simacogo.framework;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 /*
- * Represents a move in the Simacogo game. Consists of a 2D 9x9 board, an action,
- * and a point cost for Min and Max. Keeps links to parent so that a tree can be 
- * returned with the best possible score.
+ * Represents a move in the Simacogo game. Consists of a 9x9 board held as a
+ * pair of bitboards, an action, and a point cost for Min and Max. Keeps no
+ * links to its children or its parent: getChildren makes a new list each
+ * call, and a game's history is kept as a MoveLog.
  * 
- * POSSIBLE IMPROVEMENT: Store data in bytes instead of chars and ints. 
+ * The char[][] board is only a view, built lazily for printing.
  */
 
 public class Node {
 	
-	//could place this int in an enum?
-	private static final int BOARD_SIZE = 9;
+	//The standard board's dimensions, rows and columns kept apart as in BoardGeometry
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
+	private static final char EMPTY = '\u00B7';
+	private static final int ALL_COLUMNS = (1 << COLUMNS) - 1;
+	
+	/*
+	 * Bitboard state. Cells are numbered column-major (y * ROWS + x), so
+	 * each column is a run of nine bits. Cells 0-63 live in the low word and
+	 * cells 64-80 in the high word. Heights count the markers in each column.
+	 */
+	private long xLo;
+	private long xHi;
+	private long oLo;
+	private long oHi;
+	private byte[] heights;
+	
+	//Markers on the board, and a mask of the columns with room (bit y)
+	private int filled;
+	private int openColumns;
+	
+	//Zobrist hash of the markers alone, the side to move is added by getHash
+	private long markerHash;
+	
+	//char view of the bitboards, only built when asked for
 	private char[][] state;
 	private Action action;
 	private int	xScore;
@@ -22,7 +48,6 @@ public class Node {
 	private int minMaxVal;
 	private int alphaVal;
 	private int betaVal;
-	private List<Node> children;
 	
 	/*
 	 * Class constructor which is generated from a parent node.
@@ -32,7 +57,7 @@ public class Node {
 		this.action = action;
 		this.xScore = xScore;
 		this.oScore = oScore;
-		this.state = state;
+		loadState(state);
 		if(this.action.playerIsX){
 			this.xScore += pointsToAdd;
 		}
@@ -46,16 +71,8 @@ public class Node {
 	 * 
 	 */
 	public Node(){
-		this.state = new char[BOARD_SIZE][BOARD_SIZE];
-		int x;
-		int y;
-		
-		//create the board
-		for(x = 0; x < BOARD_SIZE; x++){
-			for(y = 0; y < BOARD_SIZE; y++){
-				state[x][y] = '\u00B7';
-			}
-		}
+		this.heights = new byte[COLUMNS];
+		this.openColumns = ALL_COLUMNS;
 		this.xScore = 0;
 		this.oScore = 0;
 		this.action = new Action(0,0,'X');
@@ -68,7 +85,26 @@ public class Node {
 	public Node(int xScore, int oScore, char[][] state, Action action){
 		this.xScore = xScore;
 		this.oScore = oScore;
-		this.state = state;
+		loadState(state);
+		this.action = action;
+	}
+	
+	/*
+	 * Child constructor used by makeChild. Takes the bitboards directly so no
+	 * char board has to be built or copied.
+	 */
+	private Node(long xLo, long xHi, long oLo, long oHi, byte[] heights, int filled,
+				 int openColumns, long markerHash, int xScore, int oScore, Action action){
+		this.xLo = xLo;
+		this.xHi = xHi;
+		this.oLo = oLo;
+		this.oHi = oHi;
+		this.heights = heights;
+		this.filled = filled;
+		this.openColumns = openColumns;
+		this.markerHash = markerHash;
+		this.xScore = xScore;
+		this.oScore = oScore;
 		this.action = action;
 	}
 	
@@ -78,13 +114,14 @@ public class Node {
 	 * The "\u00B7" marker is an interpunct that represents unmarked board slots.
 	 */
 	public void printBoard(){
+		char[][] state = getState();
 		int x, y;
-		for(x = 0; x < BOARD_SIZE; x++)
+		for(x = 0; x < COLUMNS; x++)
 			System.out.print( (x + 1) + " ");
 
-		for(x = 0; x < BOARD_SIZE; x++){
+		for(x = 0; x < ROWS; x++){
 				System.out.println();
-			for(y = 0; y < BOARD_SIZE; y++){
+			for(y = 0; y < COLUMNS; y++){
 				System.out.print(state[x][y] + " ");
 			}
 		}
@@ -92,16 +129,147 @@ public class Node {
 	}
 	
 	
-	//Getters and setters for state of board.
+	/*
+	 * Getters and setters for state of board. The char board is a view built
+	 * from the bitboards on first request; setState rebuilds the bitboards.
+	 */
 	public char[][] getState(){
+		if(state == null){
+			char[][] view = new char[ROWS][COLUMNS];
+			for(int x = 0; x < ROWS; x++){
+				for(int y = 0; y < COLUMNS; y++){
+					int cell = cell(x, y);
+					if(isSet(xLo, xHi, cell))
+						view[x][y] = 'X';
+					else if(isSet(oLo, oHi, cell))
+						view[x][y] = 'O';
+					else
+						view[x][y] = EMPTY;
+				}
+			}
+			state = view;
+		}
 		return state;
 	}
 	
 	public void setState(char[][] board) throws Exception{
-		if(board[0].length != BOARD_SIZE)
+		if(board[0].length != COLUMNS)
 			throw new Exception();
 		else 
-			this.state = board;
+			loadState(board);
+	}
+	
+	//Rebuilds the bitboards and column heights from a char board.
+	private void loadState(char[][] board){
+		xLo = xHi = oLo = oHi = 0L;
+		heights = new byte[COLUMNS];
+		for(int x = 0; x < ROWS; x++){
+			for(int y = 0; y < COLUMNS; y++){
+				int cell = cell(x, y);
+				if(board[x][y] == 'X'){
+					if(cell < 64) xLo |= 1L << cell;
+					else xHi |= 1L << (cell - 64);
+					heights[y]++;
+				}
+				else if(board[x][y] == 'O'){
+					if(cell < 64) oLo |= 1L << cell;
+					else oHi |= 1L << (cell - 64);
+					heights[y]++;
+				}
+			}
+		}
+		filled = 0;
+		openColumns = 0;
+		for(int y = 0; y < COLUMNS; y++){
+			filled += heights[y];
+			if(heights[y] < ROWS)
+				openColumns |= 1 << y;
+		}
+		this.markerHash = Zobrist.hash(xLo, xHi, oLo, oHi, false);
+		this.state = board;
+	}
+	
+	
+	/*
+	 * Bitboard helpers. A cell's bit index is its column times the row count
+	 * plus its row.
+	 */
+	private static int cell(int x, int y){
+		return y * ROWS + x;
+	}
+	
+	private static boolean isSet(long lo, long hi, int cell){
+		if(cell < 64)
+			return (lo >>> cell & 1L) != 0;
+		return (hi >>> (cell - 64) & 1L) != 0;
+	}
+	
+	//Number of markers on the board, X and O combined.
+	public int getFilledCount(){
+		return filled;
+	}
+	
+	//Mask of the columns that still have room, bit y for column y.
+	public int getOpenColumns(){
+		return openColumns;
+	}
+	
+	//True when every cell is filled. Reads the counters, so it is O(1).
+	public boolean isFull(){
+		return openColumns == 0;
+	}
+	
+	//Number of markers already dropped in column y.
+	public int getHeight(int y){
+		return heights[y];
+	}
+	
+	/*
+	 * Zobrist hash of the position including the side to move, which is the
+	 * player who did not make this node's action.
+	 */
+	public long getHash(){
+		return action.playerIsX ? markerHash : markerHash ^ Zobrist.SIDE;
+	}
+	
+	/*
+	 * Hash of this position's left-right mirror image. The board and the
+	 * scoring are symmetric under the mirror, so both positions have the same
+	 * value and column y in one is column 8 - y in the other.
+	 */
+	public long getMirrorHash(){
+		return Zobrist.mirrorHash(xLo, xHi, oLo, oHi, !action.playerIsX);
+	}
+	
+	/*
+	 * The smaller of the hash and the mirror hash: the same for a position
+	 * and its mirror image. Columns stored under this key are in the
+	 * orientation whose hash it is; see isMirrored.
+	 */
+	public long getCanonicalHash(){
+		return Math.min(getHash(), getMirrorHash());
+	}
+	
+	//True when the canonical hash is the mirror's, so columns must be flipped.
+	public boolean isMirrored(){
+		return getMirrorHash() < getHash();
+	}
+	
+	//Raw bitboard words, read by Board when it copies a node and by MoveBatch's callers.
+	public long getXLo(){
+		return xLo;
+	}
+	
+	public long getXHi(){
+		return xHi;
+	}
+	
+	public long getOLo(){
+		return oLo;
+	}
+	
+	public long getOHi(){
+		return oHi;
 	}
 	
 	
@@ -134,51 +302,64 @@ public class Node {
 	 * Create actions and return a list to be added to the stack for Minimax.
 	 */	
 	public List<Node> getChildren() {
-		this.children = new LinkedList<Node>();		
-		for (int y = 0; y < BOARD_SIZE; y++){
-			tryXColumnChild(y);
+		//not kept on the node, so a search's tree is garbage once it moves on
+		List<Node> children = new LinkedList<Node>();
+		
+		//Score every column's drop in one batch, then make the open ones
+		boolean xMoves = !action.playerIsX;
+		int[] points = new int[COLUMNS];
+		int open = MoveBatch.scoreAll(xMoves ? xLo : oLo, xMoves ? xHi : oHi, 
+									  xLo | oLo, xHi | oHi, points);
+		for (int y = 0; y < COLUMNS; y++){
+			if((open & (1 << y)) != 0)
+				children.add(makeChild(ROWS - 1 - heights[y], y, points[y]));
 		}
-		return this.children;
+		return children;
 	}
 	
 	/*
-	 * Called by getChildren, traverses down a column to see if a child
-	 * can be created. If one can be created, calls makeChild to add to 
-	 * the list of children.
+	 * Called by getChildren, reads the column height to see if a child
+	 * can be created. If one can be created, calls makeChild and adds it
+	 * to the list of children.
 	 */
-	public void tryXColumnChild(int y){
-		for(int x = 0; x < BOARD_SIZE; x++){
-			//no room in column
-			if(x == 0 && state[x][y] != '\u00B7')
-				return;
-			//last tile in the column
-			if(x == BOARD_SIZE - 1 && state[x][y] == '\u00B7'){
-				makeChild(x, y);
-				return;
-			}
-			//next tile is occupied but current is not
-			if(state[x + 1][y] != '\u00B7' && state[x][y] == '\u00B7'){
-				makeChild(x, y);
-				return;
-			}
-		}
+	public void tryXColumnChild(List<Node> children, int y){
+		//no room in column
+		if((openColumns & (1 << y)) == 0)
+			return;
+		children.add(makeChild(ROWS - 1 - heights[y], y));
 	}
 	
 	/*
-	 * Creates a child node and stores in the children list
+	 * Creates the child node for a drop at row x, column y.
 	 */
-	public void makeChild(int x, int y) {
+	public Node makeChild(int x, int y) {
+		return makeChild(x, y, movePoints(x, y, this.action.playerIsX ? 'O' : 'X'));
+	}
+	
+	//makeChild with the drop's points already known.
+	private Node makeChild(int x, int y, int pointsToAdd) {
 		char next;
 		if(this.action.playerIsX) 
 			next = 'O';
 		else next = 'X';
-		int pointsToAdd = movePoints(x, y, next);
 		Action nextMove = new Action(x, y, next);
-		char[][] newState = copyStateAndAddMove(nextMove);
 		
+		int cell = cell(x, y);
+		long lo = cell < 64 ? 1L << cell : 0L;
+		long hi = cell < 64 ? 0L : 1L << (cell - 64);
+		byte[] newHeights = heights.clone();
+		newHeights[y]++;
+		int newOpenColumns = newHeights[y] == ROWS ? openColumns & ~(1 << y) : openColumns;
+		long newHash = markerHash ^ Zobrist.key(nextMove.playerIsX, x, y);
 		
-		Node newNode = new Node(this.xScore, this.oScore, nextMove, newState, pointsToAdd);
-		this.children.add(newNode);
+		Node newNode;
+		if(nextMove.playerIsX)
+			newNode = new Node(xLo | lo, xHi | hi, oLo, oHi, newHeights, filled + 1, 
+							   newOpenColumns, newHash, xScore + pointsToAdd, oScore, nextMove);
+		else
+			newNode = new Node(xLo, xHi, oLo | lo, oHi | hi, newHeights, filled + 1, 
+							   newOpenColumns, newHash, xScore, oScore + pointsToAdd, nextMove);
+		return newNode;
 	}
 
 
@@ -186,9 +367,10 @@ public class Node {
 	public char[][] copyStateAndAddMove(Action move){
 		int x = move.getxCoord();
 		int y = move.getyCoord();
-		char [][] newState = new char[BOARD_SIZE][BOARD_SIZE];
-		for(int i = 0; i < BOARD_SIZE; i++)
-		    System.arraycopy(this.state[i], 0, newState[i], 0, BOARD_SIZE);
+		char[][] state = getState();
+		char [][] newState = new char[ROWS][COLUMNS];
+		for(int i = 0; i < ROWS; i++)
+		    System.arraycopy(state[i], 0, newState[i], 0, COLUMNS);
 		if(move.playerIsX)
 			newState[x][y] = 'X';
 		else
@@ -197,33 +379,60 @@ public class Node {
 		return newState;
 	}
 	
+	/*
+	 * The same position with the players swapped: X's markers and score
+	 * become O's and the other way round, and so does the turn. Lets an
+	 * engine that always plays O choose X's moves.
+	 */
+	public Node swapPlayers(){
+		Action swapped = new Action(action.getxCoord(), action.getyCoord(), 
+									action.playerIsX ? 'O' : 'X');
+		return new Node(oLo, oHi, xLo, xHi, heights, filled, openColumns, 
+						Zobrist.hash(oLo, oHi, xLo, xHi, false), oScore, xScore, swapped);
+	}
+	
 	/*
 	 * Calculates the score of a new node's added position using the proposed
-	 * X and Y coordinates. Examines the tiles surrounding the coordinates.
+	 * X and Y coordinates. Examines the tiles surrounding the coordinates in
+	 * the marker's bitboard.
 	 * TODO: Move this outside?
 	 */
 	public int movePoints(int x, int y, char marker){
+		if(marker == 'X')
+			return movePoints(xLo, xHi, x, y);
+		return movePoints(oLo, oHi, x, y);
+	}
+	
+	/*
+	 * Scores a drop at (x, y) against one player's bitboard, using the
+	 * precomputed neighbour masks.
+	 */
+	public static int movePoints(long lo, long hi, int x, int y){
+		return NeighbourMasks.score(lo, hi, cell(x, y));
+	}
+	
+	/*
+	 * Reference version of movePoints that tests the eight neighbours one by
+	 * one. Neighbours in the same column sit one bit away, neighbours in the
+	 * next column sit ROWS bits away.
+	 */
+	public static int movePointsReference(long lo, long hi, int x, int y){
+		int c = cell(x, y);
 		int score = 0;
+		boolean up = x > 0, down = x < ROWS - 1;
+		boolean left = y > 0, right = y < COLUMNS - 1;
 		
 		//2 pts calculation, looks Up, Down, Left, and Right
-		if (x > 0) 
-			if (state[x - 1][y] == marker) score += 2; 
-		if (x < BOARD_SIZE - 1)
-			if (state[x + 1][y] == marker) score += 2; 
-		if (y > 0)
-			if (state[x][y - 1] == marker) score += 2; 
-		if (y < BOARD_SIZE - 1)
-			if (state[x][y + 1] == marker) score += 2; 
+		if (up && isSet(lo, hi, c - 1)) score += 2;
+		if (down && isSet(lo, hi, c + 1)) score += 2;
+		if (left && isSet(lo, hi, c - ROWS)) score += 2;
+		if (right && isSet(lo, hi, c + ROWS)) score += 2;
 		
 		//1 pts calculation, looks NW, NE, SE, SW
-		if (x > 0 && y > 0) 
-			if (state[x - 1][y - 1] == marker) score += 1; 
-		if (x > 0 && y < BOARD_SIZE - 1)
-			if (state[x - 1][y + 1] == marker) score += 1; 
-		if (x < BOARD_SIZE - 1 && y < BOARD_SIZE - 1)
-			if (state[x + 1][y + 1] == marker) score += 1; 
-		if (x < BOARD_SIZE - 1 && y > 0)
-			if (state[x + 1][y - 1] == marker) score += 1; 
+		if (up && left && isSet(lo, hi, c - ROWS - 1)) score += 1;
+		if (up && right && isSet(lo, hi, c + ROWS - 1)) score += 1;
+		if (down && right && isSet(lo, hi, c + ROWS + 1)) score += 1;
+		if (down && left && isSet(lo, hi, c - ROWS + 1)) score += 1;
 		
 		return score;
 	}
@@ -298,6 +507,49 @@ public class Node {
 			
 			depth--;
 		}
-			
+		
+		//Randomized check of the mask scoring against the reference version
+		Random random = new Random(1);
+		int mismatches = 0;
+		for(int board = 0; board < 10000; board++){
+			long lo = random.nextLong();
+			long hi = random.nextLong() & ((1L << (CELLS - 64)) - 1);
+			for(int x = 0; x < ROWS; x++){
+				for(int y = 0; y < COLUMNS; y++){
+					if(movePoints(lo, hi, x, y) != movePointsReference(lo, hi, x, y))
+						mismatches++;
+				}
+			}
+		}
+		System.out.println("movePoints vs reference on 10000 random boards: " 
+				+ mismatches + " mismatches");
+		
+		/*
+		 * Mirror hashes: a node's mirror hash must be the hash of the board
+		 * built mirrored from chars, and Board must keep it in step.
+		 */
+		mismatches = 0;
+		int positions = 0;
+		for(int game = 0; game < 200; game++){
+			node = new Node();
+			Board board = new Board(node);
+			while(!TerminalTest.isTerminalStateFast(node)){
+				children = node.getChildren();
+				node = children.get(random.nextInt(children.size()));
+				board.play(node.getAction().getyCoord());
+				char[][] state = node.getState();
+				char[][] mirrored = new char[ROWS][COLUMNS];
+				for(int x = 0; x < ROWS; x++){
+					for(int y = 0; y < COLUMNS; y++)
+						mirrored[x][y] = state[x][COLUMNS - 1 - y];
+				}
+				Node mirror = new Node(node.getOScore(), node.getXScore(), mirrored, node.getAction());
+				if(mirror.getHash() != node.getMirrorHash() || board.getMirrorHash() != node.getMirrorHash()
+						|| mirror.getCanonicalHash() != node.getCanonicalHash())
+					mismatches++;
+				positions++;
+			}
+		}
+		System.out.println("Mirror hashes on " + positions + " positions: " + mismatches + " mismatches");
 	}
 }
@@ -1,43 +1,51 @@
 package simacogo.framework;
 
+import java.util.List;
+import java.util.Random;
+
 /*
  * Static check to see if a given node is a terminal state of the game, where 
- * there are no further moves left to make. Checks for an interpunct at
- * each position, and if one exists, returns false. Full board should
- * have no interpuncts. 
+ * there are no further moves left to make. Reads the filled-cell counter and
+ * open-column mask the node keeps up to date as children are made, so both
+ * checks are O(1). Full board should have 81 markers and no open column. 
  */
 public class TerminalTest {
 
-	//cast into enum?
-	private static final int BOARD_SIZE = 9;
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
 	
-	//check of whole board
+	//check of whole board, reads the node's filled-cell counter
 	public static boolean isTerminalState(Node node){
-
-		char[][] tiles = node.getState();
-		
-		for(int x = 0; x < BOARD_SIZE; x++){
-			for(int y = 0; y < BOARD_SIZE; y++){
-				if(tiles[x][y] == '\u00B7')
-					return false;
-			}
-		}
-		return true;
+		return node.getFilledCount() == CELLS;
 	}
 	
-	//check of top row in board
+	//check of top row in board, reads the node's open-column mask
 	public static boolean isTerminalStateFast(Node node){
+		return node.getOpenColumns() == 0;
+	}
+	
+	//check of a board of any size, full when every cell is filled
+	public static boolean isTerminalState(GeometryBoard board){
+		return board.isFull();
+	}
+	
+	//reference check, scans every cell of the char view for an interpunct
+	private static boolean scanForEmptyCell(Node node){
 		char[][] tiles = node.getState();
-		
-		for(int y = 0; y < BOARD_SIZE; y++){
-			if(tiles[0][y] == '\u00B7')
-				return false;
+		for(int x = 0; x < ROWS; x++){
+			for(int y = 0; y < COLUMNS; y++){
+				if(tiles[x][y] == '\u00B7')
+					return false;
 			}
+		}
 		return true;
 	}
 	
 	/*
-	 * Main for unit testing. Checks empty board & full board.
+	 * Main for unit testing. Checks empty board & full board, then plays
+	 * random games and checks that both tests agree with a scan of the
+	 * board after every move.
 	 */
 	public static void main(String[] args) throws Exception {
 		Node test = new Node();
@@ -46,9 +54,9 @@ public class TerminalTest {
 				TerminalTest.isTerminalState(test));
 
 		int z = 0;
-		char[][] fullBoard = new char[9][9];
-		for(int x = 0; x< BOARD_SIZE; x++){
-			for(int y = 0; y< BOARD_SIZE; y++){
+		char[][] fullBoard = new char[ROWS][COLUMNS];
+		for(int x = 0; x< ROWS; x++){
+			for(int y = 0; y< COLUMNS; y++){
 				fullBoard[x][y] = (z % 2 == 0) ? 'X' : 'O'; 
 				z++;
 			}
@@ -56,7 +64,26 @@ public class TerminalTest {
 		test.setState(fullBoard);
 		test.printBoard();
 		System.out.println("Full board is terminal: " + 
-				TerminalTest.isTerminalState(test));		
+				TerminalTest.isTerminalState(test));
+		
+		Random random = new Random(1);
+		int positions = 0;
+		int disagreements = 0;
+		for(int game = 0; game < 200; game++){
+			Node node = new Node();
+			while(true){
+				boolean expected = scanForEmptyCell(node);
+				positions++;
+				if(isTerminalState(node) != expected || isTerminalStateFast(node) != expected)
+					disagreements++;
+				if(expected)
+					break;
+				List<Node> children = node.getChildren();
+				node = children.get(random.nextInt(children.size()));
+			}
+		}
+		System.out.println("Random games: " + positions + " positions, " 
+				+ disagreements + " disagreements");
 	}
 
 }
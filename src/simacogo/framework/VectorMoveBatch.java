@@ -0,0 +1,125 @@
+package simacogo.framework;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.ASHR;
+import static jdk.incubator.vector.VectorOperators.LSHL;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+
+/*
+ * MoveBatch's scorer in jdk.incubator.vector lanes, one column per lane. Only
+ * loaded by MoveBatch, by reflection, when the module is there.
+ *
+ * The board is shifted up by one column first, so that each lane can pull a
+ * window of three columns (its own and the ones either side) out of the two
+ * words with per-lane shifts. The landing bit is the top of the run of empty
+ * rows in the lane's column, and the drop scores 2 for each of its own
+ * markers below it or level with it in the side columns, and 1 for each one
+ * a row above or below it in the side columns. The incubator API in JDK 17
+ * has no lane bit count, so those neighbour bits go into 16-bit fields and
+ * each field is tested for zero by adding a column of ones and keeping the
+ * carry. Columns left over after the last full vector are scored one at a
+ * time.
+ *
+ * C2 in JDK 17 only keeps vectors in registers when every operation is
+ * intrinsified and no vector is loaded per pass or carried across the loop,
+ * so the window shifts are worked out from the lane number rather than
+ * looked up, and full columns are found by sign arithmetic rather than
+ * masks.
+ */
+final class VectorMoveBatch implements MoveBatch.Scorer {
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final long COLUMN_MASK = (1L << ROWS) - 1;
+	private static final long WINDOW_MASK = (1L << (3 * ROWS)) - 1;
+	//A one, and a column's worth of ones, in each 16-bit field
+	private static final long FIELD_ONES = 0x0001000100010001L;
+	private static final long FIELD_FILL = FIELD_ONES * COLUMN_MASK;
+
+	private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+	//Same lane count as LONGS, for storing the points
+	private static final VectorSpecies<Integer> INTS =
+			VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.length() * Integer.SIZE));
+	private static final int VECTORS = COLUMNS / LONGS.length();
+
+	//Bit each lane's column starts at, within a vector: lane * ROWS
+	private static final LongVector LANE_START;
+
+	static {
+		long[] start = new long[LONGS.length()];
+		for(int lane = 0; lane < start.length; lane++)
+			start[lane] = lane * ROWS;
+		LANE_START = LongVector.fromArray(LONGS, start, 0);
+	}
+
+	public int scoreAll(long ownLo, long ownHi, long occupiedLo, long occupiedHi, int[] points){
+		//Up a column, so column y's window starts at bit y * ROWS
+		long ownLoUp = ownLo << ROWS;
+		long ownHiUp = (ownHi << ROWS) | (ownLo >>> (64 - ROWS));
+		long occupiedLoUp = occupiedLo << ROWS;
+		long occupiedHiUp = (occupiedHi << ROWS) | (occupiedLo >>> (64 - ROWS));
+		for(int v = 0; v < VECTORS; v++){
+			//Made inside the loop: a vector live across it, or loaded per pass, is boxed
+			LongVector start = LANE_START.add((long) v * LONGS.length() * ROWS);
+			LongVector inLow = start.sub(64L).lanewise(ASHR, 63);
+			LongVector own = window(ownLoUp, ownHiUp, start, inLow);
+			LongVector occupied = window(occupiedLoUp, occupiedHiUp, start, inLow);
+			LongVector empty = occupied.lanewise(LSHR, ROWS).not().and(COLUMN_MASK);
+			LongVector landing = empty.and(empty.lanewise(LSHR, 1).not());
+
+			LongVector left = own.and(COLUMN_MASK);
+			LongVector centre = own.lanewise(LSHR, ROWS).and(COLUMN_MASK);
+			LongVector right = own.lanewise(LSHR, 2 * ROWS);
+			LongVector above = landing.lanewise(LSHR, 1);
+			LongVector below = landing.lanewise(LSHL, 1);
+			LongVector ortho = centre.and(below)
+					.or(left.and(landing).lanewise(LSHL, 16))
+					.or(right.and(landing).lanewise(LSHL, 32));
+			LongVector diag = left.and(above)
+					.or(left.and(below).lanewise(LSHL, 16))
+					.or(right.and(above).lanewise(LSHL, 32))
+					.or(right.and(below).lanewise(LSHL, 48));
+
+			//One per non-empty field, summed across the fields
+			ortho = ortho.add(FIELD_FILL).lanewise(LSHR, ROWS).and(FIELD_ONES);
+			diag = diag.add(FIELD_FILL).lanewise(LSHR, ROWS).and(FIELD_ONES);
+			LongVector score = ortho.add(ortho).add(diag);
+			score = score.add(score.lanewise(LSHR, 16));
+			score = score.add(score.lanewise(LSHR, 32)).and(0xFFL);
+			//-1 for a full column, which has no landing bit
+			score = score.or(landing.sub(1L).lanewise(ASHR, 63));
+			((IntVector) score.convertShape(VectorOperators.L2I, INTS, 0))
+					.intoArray(points, v * LONGS.length());
+		}
+		for(int y = VECTORS * LONGS.length(); y < COLUMNS; y++)
+			points[y] = MoveBatch.scoreColumn(ownLo, ownHi, occupiedLo, occupiedHi, y);
+		int open = 0;
+		for(int y = 0; y < COLUMNS; y++){
+			if(points[y] >= 0)
+				open |= 1 << y;
+		}
+		return open;
+	}
+
+	/*
+	 * The three-column windows of the lanes' columns, from the shifted words.
+	 * A window starting in the low word takes (lo >>> start), plus the high
+	 * word moved up by (64 - start) in case it runs over, which is done as
+	 * two shifts because a lane shift of 64 is a shift of 0. One starting in
+	 * the high word takes (hi >>> (start - 64)). Shift counts out of range
+	 * are masked off by inLow.
+	 */
+	private static LongVector window(long lo, long hi, LongVector start, LongVector inLow){
+		LongVector low = LongVector.broadcast(LONGS, lo).lanewise(LSHR, start).and(inLow);
+		LongVector over = LongVector.broadcast(LONGS, hi << 1)
+				.lanewise(LSHL, start.neg().add(63L)).and(inLow);
+		LongVector high = LongVector.broadcast(LONGS, hi)
+				.lanewise(LSHR, start.sub(64L)).and(inLow.not());
+		return low.or(over).or(high).and(WINDOW_MASK);
+	}
+}
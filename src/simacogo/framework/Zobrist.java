@@ -0,0 +1,75 @@
+package simacogo.framework;
+
+import java.util.SplittableRandom;
+
+/*
+ * Zobrist keys for hashing positions. Every (player, row, column) triple has
+ * a random 64-bit key, and a position's hash is the XOR of the keys of its
+ * markers plus SIDE when X is to move. Dropping a marker XORs in one key and
+ * SIDE, so Node and Board update their hashes incrementally.
+ */
+public final class Zobrist {
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
+	private static final long SEED = 0x5EED5_1AC0_60L;
+	
+	private static final long[] X_KEYS = new long[CELLS];
+	private static final long[] O_KEYS = new long[CELLS];
+	public static final long SIDE;
+	
+	static {
+		//fixed seed, so hashes are stable between runs
+		SplittableRandom random = new SplittableRandom(SEED);
+		for(int i = 0; i < X_KEYS.length; i++){
+			X_KEYS[i] = random.nextLong();
+			O_KEYS[i] = random.nextLong();
+		}
+		SIDE = random.nextLong();
+	}
+	
+	private Zobrist(){
+	}
+	
+	//Key for a marker of the given player at row x, column y.
+	public static long key(boolean playerIsX, int x, int y){
+		int cell = y * ROWS + x;
+		return playerIsX ? X_KEYS[cell] : O_KEYS[cell];
+	}
+	
+	/*
+	 * Hashes a whole position from its bitboards. Only used when a position
+	 * is built from scratch; moves update the hash with key and SIDE.
+	 */
+	static long hash(long xLo, long xHi, long oLo, long oHi, boolean xToMove){
+		long hash = xToMove ? SIDE : 0L;
+		for(int cell = 0; cell < X_KEYS.length; cell++){
+			long bit = cell < 64 ? xLo >>> cell : xHi >>> (cell - 64);
+			if((bit & 1L) != 0)
+				hash ^= X_KEYS[cell];
+			bit = cell < 64 ? oLo >>> cell : oHi >>> (cell - 64);
+			if((bit & 1L) != 0)
+				hash ^= O_KEYS[cell];
+		}
+		return hash;
+	}
+	
+	/*
+	 * Hash of the left-right mirror image of a position (column y moved to
+	 * 8 - y), computed without building the mirrored bitboards.
+	 */
+	static long mirrorHash(long xLo, long xHi, long oLo, long oHi, boolean xToMove){
+		long hash = xToMove ? SIDE : 0L;
+		for(int cell = 0; cell < X_KEYS.length; cell++){
+			int mirrored = (COLUMNS - 1 - cell / ROWS) * ROWS + cell % ROWS;
+			long bit = cell < 64 ? xLo >>> cell : xHi >>> (cell - 64);
+			if((bit & 1L) != 0)
+				hash ^= X_KEYS[mirrored];
+			bit = cell < 64 ? oLo >>> cell : oHi >>> (cell - 64);
+			if((bit & 1L) != 0)
+				hash ^= O_KEYS[mirrored];
+		}
+		return hash;
+	}
+}
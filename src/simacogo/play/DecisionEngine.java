@@ -0,0 +1,17 @@
+package simacogo.play;
+
+import simacogo.framework.Node;
+
+/*
+ * Anything that can choose the next column for the side to move.
+ * Implemented by Minimax and MonteCarlo, so match play can pit them
+ * against each other.
+ */
+public interface DecisionEngine {
+
+	/*
+	 * Chooses a column (0-8) to play in node. Engines read the options
+	 * they understand and ignore the rest.
+	 */
+	int decide(Node node, SearchOptions options);
+}
@@ -0,0 +1,122 @@
+package simacogo.play;
+
+/*
+ * One side of a self-play match: a ply, alpha-beta on or off, and an
+ * engine variant. Written and parsed as "ply:ab:variant", for example
+ * "6:ab:tuned" or "4:noab:nodes". Monte Carlo engines are written as
+ * "mcts:budget[:random|greedy]", where the budget is a playout count or a
+ * time such as "50ms", for example "mcts:20000:greedy".
+ *
+ * Variants:
+ *   nodes - the original Node tree search
+ *   board - the make/unmake Board search
+ *   tuned - the Board search with a transposition table, move ordering,
+ *           Principal Variation Search, mirror symmetry and the endgame
+ *           solver
+ *   mcts  - MonteCarlo tree search
+ */
+public class EngineConfig {
+
+	public enum Variant { NODES, BOARD, TUNED, MCTS }
+	
+	private static final int TUNED_TABLE_BITS = 20;
+	private static final int TUNED_ENDGAME_THRESHOLD = 11;
+	
+	private final int ply;
+	private final boolean ABPrune;
+	private final Variant variant;
+	private int playouts;
+	private long millis;
+	private boolean greedyPlayouts;
+	
+	public EngineConfig(int ply, boolean ABPrune, Variant variant){
+		this.ply = ply;
+		this.ABPrune = ABPrune;
+		this.variant = variant;
+	}
+	
+	//A Monte Carlo engine with a playout or time budget.
+	public static EngineConfig monteCarlo(int playouts, long millis, boolean greedyPlayouts){
+		EngineConfig config = new EngineConfig(0, false, Variant.MCTS);
+		config.playouts = playouts;
+		config.millis = millis;
+		config.greedyPlayouts = greedyPlayouts;
+		return config;
+	}
+	
+	/*
+	 * Parses "ply:ab:variant". The last two parts are optional and default
+	 * to alpha-beta on and the nodes variant.
+	 */
+	public static EngineConfig parse(String spec){
+		String[] parts = spec.split(":");
+		try {
+			if(parts[0].equalsIgnoreCase("mcts")){
+				if(parts.length < 2)
+					throw new IllegalArgumentException("no budget in " + spec);
+				boolean greedy = parts.length > 2 && parts[2].equalsIgnoreCase("greedy");
+				if(parts[1].toLowerCase().endsWith("ms"))
+					return monteCarlo(0, Long.parseLong(parts[1].substring(0, parts[1].length() - 2)), 
+									  greedy);
+				return monteCarlo(Integer.parseInt(parts[1]), 0, greedy);
+			}
+			int ply = Integer.parseInt(parts[0]);
+			boolean ABPrune = parts.length < 2 || parts[1].equalsIgnoreCase("ab");
+			if(parts.length > 1 && !ABPrune && !parts[1].equalsIgnoreCase("noab"))
+				throw new IllegalArgumentException("expected ab or noab in " + spec);
+			Variant variant = parts.length < 3 ? Variant.NODES 
+											   : Variant.valueOf(parts[2].toUpperCase());
+			return new EngineConfig(ply, ABPrune, variant);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("bad number in " + spec);
+		}
+	}
+	
+	/*
+	 * Fresh options for one engine instance. Tuned engines get their own
+	 * transposition table, so every call gives an independent engine.
+	 */
+	public SearchOptions newOptions(){
+		SearchOptions options = new SearchOptions(ply, ABPrune, false);
+		if(variant != Variant.NODES)
+			options.setMakeUnmake(true);
+		if(variant == Variant.TUNED && ABPrune){
+			options.setTranspositionTable(new TranspositionTable(TUNED_TABLE_BITS, 
+					TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+			options.setMoveOrdering(true);
+			options.setPrincipalVariation(true);
+			options.setEndgameThreshold(TUNED_ENDGAME_THRESHOLD);
+			options.setSymmetry(true);
+		}
+		return options;
+	}
+	
+	//A fresh engine for one worker, to be used with newOptions.
+	public DecisionEngine newEngine(){
+		if(variant == Variant.MCTS)
+			return new MonteCarlo(playouts, millis, greedyPlayouts);
+		return new Minimax();
+	}
+	
+	//BEGIN getters and setters
+	public int getPly() {
+		return ply;
+	}
+
+	public boolean isABPrune() {
+		return ABPrune;
+	}
+
+	public Variant getVariant() {
+		return variant;
+	}
+	//END getters and setters
+	
+	@Override
+	public String toString(){
+		if(variant == Variant.MCTS)
+			return "mcts:" + (millis > 0 ? millis + "ms" : String.valueOf(playouts)) 
+					+ (greedyPlayouts ? ":greedy" : ":random");
+		return ply + ":" + (ABPrune ? "ab" : "noab") + ":" + variant.name().toLowerCase();
+	}
+}
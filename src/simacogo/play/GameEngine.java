@@ -0,0 +1,248 @@
+package simacogo.play;
+
+import simacogo.framework.BoardGeometry;
+import simacogo.framework.Node;
+import simacogo.framework.TerminalTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * The computer's side of one game. Where a bare Minimax starts every turn
+ * cold, a GameEngine keeps its Minimax and transposition table for the
+ * whole game, so what the last turn searched under the line actually
+ * played is still in the table when the next turn starts.
+ *
+ * Each decide re-roots the engine at the new position: the table moves to
+ * a new generation, which lets entries for positions the game has left
+ * behind be replaced first. A position that does not follow from the last
+ * root (a new game, or a take-back) clears the table instead.
+ *
+ * With compareCold set, every turn is searched a second time with a fresh
+ * Minimax and an empty table of the same size, and the turn reports how
+ * many nodes the warm search saved against it.
+ */
+public class GameEngine {
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final char EMPTY = '\u00B7';
+
+	private final Minimax minimax = new Minimax();
+	private final SearchOptions options;
+	private final TranspositionTable table;
+	private final boolean compareCold;
+
+	//Table for the cold comparison searches, emptied before each one
+	private TranspositionTable coldTable;
+
+	//Position of the last decide, null before the first
+	private Node root;
+	private final List<TurnReport> reports = new ArrayList<TurnReport>();
+
+	/*
+	 * Decides with the given options, which must use the make/unmake search
+	 * and bring the transposition table to keep between turns.
+	 */
+	public GameEngine(SearchOptions options, boolean compareCold){
+		if(!options.isMakeUnmake() || options.getTranspositionTable() == null)
+			throw new IllegalArgumentException("a game engine needs the make/unmake "
+					+ "search and a transposition table");
+		this.options = options;
+		this.table = options.getTranspositionTable();
+		this.compareCold = compareCold;
+	}
+
+	/*
+	 * Decides O's move at node, searching from the table as the earlier
+	 * turns left it.
+	 */
+	public SearchResult decide(Node node){
+		reroot(node);
+		SearchResult warm = minimax.decide(node, options, 0);
+		SearchResult cold = compareCold ? decideCold(node) : null;
+		reports.add(new TurnReport(reports.size() + 1, node.getFilledCount(), warm, cold));
+		return warm;
+	}
+
+	//Moves the table on to node, or clears it if node does not follow the last root.
+	private void reroot(Node node){
+		if(root != null && follows(root, node))
+			table.newGeneration();
+		else
+			table.clear();
+		root = node;
+	}
+
+	//Whether every marker on from's board is on to's board too.
+	private static boolean follows(Node from, Node to){
+		char[][] before = from.getState();
+		char[][] after = to.getState();
+		for(int x = 0; x < ROWS; x++){
+			for(int y = 0; y < COLUMNS; y++){
+				if(before[x][y] != EMPTY && before[x][y] != after[x][y])
+					return false;
+			}
+		}
+		return true;
+	}
+
+	//The same search from nothing: a new Minimax and an empty table.
+	private SearchResult decideCold(Node node){
+		if(coldTable == null)
+			coldTable = new TranspositionTable(
+					Integer.numberOfTrailingZeros(table.getSize()),
+					TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+		coldTable.clear();
+		SearchOptions coldOptions = options.copy();
+		coldOptions.setTranspositionTable(coldTable);
+		return new Minimax().decide(node, coldOptions, 0);
+	}
+
+	//BEGIN getters and setters
+	public SearchOptions getOptions() {
+		return options;
+	}
+
+	public Minimax getMinimax() {
+		return minimax;
+	}
+
+	public List<TurnReport> getReports() {
+		return Collections.unmodifiableList(reports);
+	}
+
+	//The last turn's report, or null before the first decide.
+	public TurnReport getLastReport() {
+		return reports.isEmpty() ? null : reports.get(reports.size() - 1);
+	}
+	//END getters and setters
+
+	/*
+	 * Nodes the warm searches of every compared turn saved, in total.
+	 */
+	public long getNodesSaved(){
+		long saved = 0;
+		for(TurnReport report : reports)
+			saved += report.getNodesSaved();
+		return saved;
+	}
+
+	/*
+	 * One turn: how many markers were on the board, what the warm search
+	 * found and what it cost, and the cold search's node count, or -1 when
+	 * the turn was not compared.
+	 */
+	public static class TurnReport {
+
+		private final int turn;
+		private final int filled;
+		private final SearchResult warm;
+		private final SearchResult cold;
+
+		TurnReport(int turn, int filled, SearchResult warm, SearchResult cold){
+			this.turn = turn;
+			this.filled = filled;
+			this.warm = warm;
+			this.cold = cold;
+		}
+
+		//BEGIN getters
+		public int getTurn() {
+			return turn;
+		}
+
+		public int getFilled() {
+			return filled;
+		}
+
+		public SearchResult getWarm() {
+			return warm;
+		}
+
+		public SearchResult getCold() {
+			return cold;
+		}
+
+		public long getWarmNodes() {
+			return warm.getNodeCount();
+		}
+
+		public long getColdNodes() {
+			return cold == null ? -1 : cold.getNodeCount();
+		}
+		//END getters
+
+		//Cold nodes minus warm nodes, 0 when the turn was not compared.
+		public long getNodesSaved(){
+			return cold == null ? 0 : cold.getNodeCount() - warm.getNodeCount();
+		}
+
+		@Override
+		public String toString(){
+			String line = "turn " + turn + " (" + filled + " filled): " + warm.getNodeCount()
+					+ " nodes";
+			if(cold == null)
+				return line;
+			long coldNodes = cold.getNodeCount();
+			double percent = coldNodes == 0 ? 0.0 : 100.0 * getNodesSaved() / coldNodes;
+			return line + ", cold " + coldNodes + ", saved " + getNodesSaved()
+					+ String.format(" (%.1f%%)", percent);
+		}
+	}
+
+	/*
+	 * Strictly for unit testing. Plays a game between a GameEngine as O and
+	 * a plain Minimax as X, comparing every O turn with a cold search.
+	 * The warm search may return a different value when a deeper entry
+	 * from an earlier turn answers a probe, but never an illegal column.
+	 */
+	public static void main(String[] args){
+		int ply = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+		SearchOptions options = new SearchOptions(ply, true, false);
+		options.setMakeUnmake(true);
+		options.setTranspositionTable(new TranspositionTable(18,
+				TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+		options.setMoveOrdering(true);
+		options.setSymmetry(true);
+		GameEngine engine = new GameEngine(options, true);
+
+		Minimax opponent = new Minimax();
+		SearchOptions opponentOptions = new SearchOptions(3, true, false);
+		opponentOptions.setMakeUnmake(true);
+
+		Node node = new Node();
+		int illegal = 0;
+		while(!TerminalTest.isTerminalStateFast(node)){
+			boolean oToMove = node.getAction().playerIsX;
+			int y;
+			if(oToMove){
+				SearchResult result = engine.decide(node);
+				y = result.getColumn();
+				System.out.println(engine.getLastReport());
+			} else
+				y = opponent.decide(node.swapPlayers(), opponentOptions);
+			Node next = null;
+			for(Node child : node.getChildren()){
+				if(child.getAction().getyCoord() == y)
+					next = child;
+			}
+			if(next == null){
+				illegal++;
+				break;
+			}
+			node = next;
+		}
+
+		long warm = 0;
+		long cold = 0;
+		for(TurnReport report : engine.getReports()){
+			warm += report.getWarmNodes();
+			cold += report.getColdNodes();
+		}
+		System.out.println("Total: " + warm + " warm nodes, " + cold + " cold, saved "
+				+ engine.getNodesSaved());
+		System.out.println("Illegal columns: " + illegal);
+	}
+}
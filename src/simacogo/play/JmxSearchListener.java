@@ -0,0 +1,86 @@
+package simacogo.play;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ * Publishes the statistics of the last search over JMX. Keeps a copy of
+ * the statistics after every search, which a JMX client reads through the
+ * SearchMXBean attributes. Register one per Minimax under its own name.
+ */
+public class JmxSearchListener implements SearchListener, SearchMXBean {
+
+	private volatile SearchStatistics last = new SearchStatistics();
+	private volatile long searches;
+	
+	/*
+	 * Creates the listener and registers it with the platform MBean server
+	 * as simacogo:type=Search,name=<name>.
+	 */
+	public JmxSearchListener(String name) throws JMException {
+		ObjectName objectName = new ObjectName("simacogo:type=Search,name=" + name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+	}
+	
+	@Override
+	public void searchFinished(SearchStatistics statistics){
+		last = statistics.copy();
+		searches++;
+	}
+	
+	@Override
+	public long getSearches(){
+		return searches;
+	}
+	
+	@Override
+	public long getLastNodes(){
+		return last.getNodes();
+	}
+	
+	@Override
+	public long getLastLeafEvaluations(){
+		return last.getLeafEvaluations();
+	}
+	
+	@Override
+	public long getLastCutoffs(){
+		return last.getCutoffs();
+	}
+	
+	@Override
+	public double getLastFirstChildCutoffRate(){
+		return last.getFirstChildCutoffRate();
+	}
+	
+	@Override
+	public double getLastEffectiveBranchingFactor(){
+		return last.getEffectiveBranchingFactor();
+	}
+	
+	@Override
+	public int getLastDepth(){
+		return last.getDeepestPly();
+	}
+	
+	@Override
+	public long[] getLastNodesByPly(){
+		return last.getNodesByPly();
+	}
+	
+	@Override
+	public long[] getLastCutoffsByChild(){
+		return last.getCutoffsByChild();
+	}
+	
+	@Override
+	public long[] getLastIterationMillis(){
+		SearchStatistics statistics = last;
+		long[] millis = new long[statistics.getIterations()];
+		for(int depth = 1; depth <= millis.length; depth++)
+			millis[depth - 1] = statistics.getIterationNanos(depth) / 1000000;
+		return millis;
+	}
+}
@@ -0,0 +1,340 @@
+package simacogo.play;
+
+import simacogo.framework.Node;
+import simacogo.framework.TerminalTest;
+import simacogo.record.MoveLogWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Headless self-play. Plays two engine configurations against each other
+ * over a number of games, with no console input, spread over one worker
+ * thread per core. Each worker keeps its own pair of engines, so no search
+ * state is shared between threads.
+ *
+ * Engines are deterministic, so every game starts from a few seeded random
+ * moves, and the engines swap colours every game. Minimax always plays O,
+ * so X's moves are chosen on the position with the players swapped; the
+ * same is done for every engine to keep the sides alike.
+ *
+ * Usage: MatchRunner <engine A> <engine B> [games] [opening plies] [csv|json] [output file] 
+ *                    [move log]
+ * Engines are given as ply:ab:variant, see EngineConfig. With a move log,
+ * every game's moves are appended to it in the MoveLog format.
+ */
+public class MatchRunner {
+
+	private final EngineConfig first;
+	private final EngineConfig second;
+	private final int openingPlies;
+	private final long seed;
+	
+	//Each worker's own engines, first and second
+	private final ThreadLocal<Engine[]> engines;
+	
+	public MatchRunner(EngineConfig first, EngineConfig second, int openingPlies, long seed){
+		this.first = first;
+		this.second = second;
+		this.openingPlies = openingPlies;
+		this.seed = seed;
+		this.engines = ThreadLocal.withInitial(
+				() -> new Engine[]{new Engine(first), new Engine(second)});
+	}
+	
+	/*
+	 * Plays the games on the given number of threads and returns the totals,
+	 * from the first engine's side.
+	 */
+	public MatchResult run(int games, int threads) throws InterruptedException, IOException {
+		return run(games, threads, null);
+	}
+	
+	/*
+	 * As run, also appending every game's moves, in game order, to the
+	 * move log when one is given.
+	 */
+	public MatchResult run(int games, int threads, MoveLogWriter log) 
+			throws InterruptedException, IOException {
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<GameRecord>> futures = new ArrayList<Future<GameRecord>>();
+			for(int game = 0; game < games; game++){
+				int index = game;
+				futures.add(workers.submit(() -> playGame(index)));
+			}
+			MatchResult result = new MatchResult(first, second);
+			for(Future<GameRecord> future : futures){
+				GameRecord game = future.get();
+				result.add(game);
+				if(log != null)
+					log.append(game.columns, game.moves, false);
+			}
+			return result;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("game failed", e.getCause());
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+	
+	/*
+	 * Plays one game on this worker's engines. The first engine plays O in
+	 * even games and X in odd ones; O moves first.
+	 */
+	GameRecord playGame(int game){
+		Engine[] pair = engines.get();
+		boolean firstIsO = game % 2 == 0;
+		Random random = new Random(seed + game / 2);
+		GameRecord record = new GameRecord();
+		
+		Node node = new Node();
+		for(int i = 0; i < openingPlies && !TerminalTest.isTerminalStateFast(node); i++){
+			List<Node> children = node.getChildren();
+			node = children.get(random.nextInt(children.size()));
+			record.columns[record.moves++] = node.getAction().getyCoord();
+		}
+		
+		while(!TerminalTest.isTerminalStateFast(node)){
+			boolean oToMove = node.getAction().playerIsX;
+			boolean firstToMove = oToMove == firstIsO;
+			Engine engine = pair[firstToMove ? 0 : 1];
+			Node view = oToMove ? node : node.swapPlayers();
+			long start = System.nanoTime();
+			int y = engine.engine.decide(view, engine.options);
+			record.latency(firstToMove, System.nanoTime() - start);
+			node = play(node, y);
+			record.columns[record.moves++] = y;
+		}
+		int margin = node.getOScore() - node.getXScore();
+		record.margin = firstIsO ? margin : -margin;
+		return record;
+	}
+	
+	private static Node play(Node node, int y){
+		for(Node child : node.getChildren()){
+			if(child.getAction().getyCoord() == y)
+				return child;
+		}
+		throw new IllegalStateException("engine chose full column " + y);
+	}
+	
+	public static void main(String[] args) throws InterruptedException, IOException {
+		if(args.length < 2){
+			System.out.println("Usage: MatchRunner <engine A> <engine B> [games] [opening plies] " 
+					+ "[csv|json] [output file] [move log]");
+			return;
+		}
+		EngineConfig first = EngineConfig.parse(args[0]);
+		EngineConfig second = EngineConfig.parse(args[1]);
+		int games = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int openingPlies = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+		boolean json = args.length > 4 && args[4].equalsIgnoreCase("json");
+		int threads = Runtime.getRuntime().availableProcessors();
+		
+		MatchRunner runner = new MatchRunner(first, second, openingPlies, 2016);
+		long start = System.currentTimeMillis();
+		MatchResult result;
+		if(args.length > 6){
+			try(MoveLogWriter log = new MoveLogWriter(Paths.get(args[6]))){
+				result = runner.run(games, threads, log);
+			}
+		} else
+			result = runner.run(games, threads);
+		String report = json ? result.toJson() : result.toCsv();
+		if(args.length > 5){
+			Files.write(Paths.get(args[5]), report.getBytes("UTF-8"));
+			System.out.println(games + " games on " + threads + " threads in " 
+					+ (System.currentTimeMillis() - start) + " ms, written to " + args[5]);
+		} else {
+			PrintStream out = System.out;
+			out.print(report);
+		}
+	}
+	
+	//A worker's engine and the options it searches with.
+	private static final class Engine {
+		final DecisionEngine engine;
+		final SearchOptions options;
+		
+		Engine(EngineConfig config){
+			this.engine = config.newEngine();
+			this.options = config.newOptions();
+		}
+	}
+	
+	/*
+	 * One game: the first engine's final margin, both sides' decision times
+	 * and the columns played, O first.
+	 */
+	static final class GameRecord {
+		int margin;
+		final int[] columns = new int[81];
+		int moves;
+		long[] firstNanos = new long[48];
+		long[] secondNanos = new long[48];
+		int firstMoves;
+		int secondMoves;
+		
+		void latency(boolean first, long nanos){
+			if(first){
+				if(firstMoves == firstNanos.length)
+					firstNanos = Arrays.copyOf(firstNanos, firstMoves * 2);
+				firstNanos[firstMoves++] = nanos;
+			} else {
+				if(secondMoves == secondNanos.length)
+					secondNanos = Arrays.copyOf(secondNanos, secondMoves * 2);
+				secondNanos[secondMoves++] = nanos;
+			}
+		}
+	}
+	
+	/*
+	 * Match totals: wins, draws and losses from the first engine's side, and
+	 * every decision time of each side for the latency percentiles.
+	 */
+	public static final class MatchResult {
+		private final EngineConfig first;
+		private final EngineConfig second;
+		private int wins;
+		private int draws;
+		private int losses;
+		//decision times, grown by doubling; only the first count entries are used
+		private long[] firstNanos = new long[256];
+		private long[] secondNanos = new long[256];
+		private int firstCount;
+		private int secondCount;
+		
+		MatchResult(EngineConfig first, EngineConfig second){
+			this.first = first;
+			this.second = second;
+		}
+		
+		void add(GameRecord game){
+			if(game.margin > 0)
+				wins++;
+			else if(game.margin < 0)
+				losses++;
+			else
+				draws++;
+			firstNanos = append(firstNanos, firstCount, game.firstNanos, game.firstMoves);
+			firstCount += game.firstMoves;
+			secondNanos = append(secondNanos, secondCount, game.secondNanos, game.secondMoves);
+			secondCount += game.secondMoves;
+		}
+		
+		/*
+		 * Copies count times after the used entries of all, doubling the
+		 * array first when they do not fit. Returns the array to keep.
+		 */
+		private static long[] append(long[] all, int used, long[] more, int count){
+			if(used + count > all.length)
+				all = Arrays.copyOf(all, Math.max(all.length * 2, used + count));
+			System.arraycopy(more, 0, all, used, count);
+			return all;
+		}
+		
+		//BEGIN getters and setters
+		public int getWins() {
+			return wins;
+		}
+
+		public int getDraws() {
+			return draws;
+		}
+
+		public int getLosses() {
+			return losses;
+		}
+		//END getters and setters
+		
+		/*
+		 * Decision time percentile in milliseconds, by nearest rank, for the
+		 * first engine or the second.
+		 */
+		public double percentileMillis(boolean ofFirst, double percentile){
+			long[] nanos = Arrays.copyOf(ofFirst ? firstNanos : secondNanos, decisions(ofFirst));
+			if(nanos.length == 0)
+				return 0;
+			Arrays.sort(nanos);
+			int rank = (int) Math.ceil(percentile / 100 * nanos.length);
+			return nanos[Math.max(0, rank - 1)] / 1e6;
+		}
+		
+		public double averageMillis(boolean ofFirst){
+			long[] nanos = ofFirst ? firstNanos : secondNanos;
+			int count = decisions(ofFirst);
+			if(count == 0)
+				return 0;
+			long total = 0;
+			for(int i = 0; i < count; i++)
+				total += nanos[i];
+			return total / 1e6 / count;
+		}
+		
+		//Decisions timed for the first engine or the second.
+		private int decisions(boolean ofFirst){
+			return ofFirst ? firstCount : secondCount;
+		}
+		
+		public String toCsv(){
+			StringBuilder sb = new StringBuilder();
+			sb.append("engine,games,wins,draws,losses,decisions,avgMillis,p50Millis,p90Millis,p99Millis,maxMillis\n");
+			csvRow(sb, true);
+			csvRow(sb, false);
+			return sb.toString();
+		}
+		
+		private void csvRow(StringBuilder sb, boolean ofFirst){
+			sb.append(ofFirst ? first : second).append(',').append(wins + draws + losses).append(',');
+			sb.append(ofFirst ? wins : losses).append(',').append(draws).append(',');
+			sb.append(ofFirst ? losses : wins).append(',');
+			sb.append(decisions(ofFirst));
+			for(double value : latencies(ofFirst))
+				sb.append(',').append(String.format(Locale.ROOT, "%.3f", value));
+			sb.append('\n');
+		}
+		
+		public String toJson(){
+			StringBuilder sb = new StringBuilder();
+			sb.append("{\"games\": ").append(wins + draws + losses).append(", \"engines\": [\n");
+			jsonEngine(sb, true);
+			sb.append(",\n");
+			jsonEngine(sb, false);
+			sb.append("\n]}\n");
+			return sb.toString();
+		}
+		
+		private void jsonEngine(StringBuilder sb, boolean ofFirst){
+			double[] latencies = latencies(ofFirst);
+			sb.append("  {\"engine\": \"").append(ofFirst ? first : second).append('"');
+			sb.append(", \"wins\": ").append(ofFirst ? wins : losses);
+			sb.append(", \"draws\": ").append(draws);
+			sb.append(", \"losses\": ").append(ofFirst ? losses : wins);
+			sb.append(", \"decisions\": ").append(decisions(ofFirst));
+			String[] names = {"avgMillis", "p50Millis", "p90Millis", "p99Millis", "maxMillis"};
+			for(int i = 0; i < names.length; i++)
+				sb.append(", \"").append(names[i]).append("\": ")
+				  .append(String.format(Locale.ROOT, "%.3f", latencies[i]));
+			sb.append('}');
+		}
+		
+		//Average, p50, p90, p99 and max decision time in milliseconds.
+		private double[] latencies(boolean ofFirst){
+			return new double[]{averageMillis(ofFirst), percentileMillis(ofFirst, 50), 
+					percentileMillis(ofFirst, 90), percentileMillis(ofFirst, 99), 
+					percentileMillis(ofFirst, 100)};
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package simacogo.play;
+
+import simacogo.framework.Node;
+
+import java.util.Comparator;
+
+/*
+ * Orders nodes from highest to lowest minimax value, so the best move for
+ * the computer (O) ends up at the front of a sorted list.
+ */
+public class MinMaxComparator implements Comparator<Node> {
+
+	@Override
+	public int compare(Node a, Node b) {
+		return Integer.compare(b.getMinMaxVal(), a.getMinMaxVal());
+	}
+}
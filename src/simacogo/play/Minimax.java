@@ -1,11 +1,21 @@
 package simacogo.play;
 
 import simacogo.framework.TerminalTest;
+import simacogo.framework.Board;
+import simacogo.framework.BoardGeometry;
+import simacogo.framework.GeometryBoard;
 import simacogo.framework.Node;
 import simacogo.framework.Action;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /*
@@ -16,7 +26,55 @@ import java.util.List;
  * 
  * ANOTHER IMPROVEMENT: Utilize a priority queue to go further into the tree.
  */
-public class Minimax {
+public class Minimax implements DecisionEngine {
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
+	private static final int TIME_CHECK_INTERVAL = 4096;
+	private static final int[] COLUMN_ORDER = {0, 1, 2, 3, 4, 5, 6, 7, 8};
+	
+	//Bound for the negamax search, kept off Integer.MIN_VALUE so it negates
+	private static final int INFINITY = Integer.MAX_VALUE;
+	
+	//Positions visited by the last search, counted in every search method
+	private long nodeCount;
+	
+	//Transposition table for abPrune, null when the search runs without one
+	private TranspositionTable table;
+	
+	//Column ordering for the Board alpha-beta, null to try columns 0 to 8
+	private MoveOrdering ordering;
+	
+	//Search below the root with pvs instead of abPrune
+	private boolean principalVariation;
+	
+	//Aspiration window statistics for the last timed decide
+	private long aspirationSearches;
+	private long aspirationFailHighs;
+	private long aspirationFailLows;
+	
+	//Counters for the last decide, and who to tell about them
+	private final SearchStatistics statistics = new SearchStatistics();
+	private final List<SearchListener> listeners = new CopyOnWriteArrayList<SearchListener>();
+	
+	//Markers on the board at the root, so plies can be counted from it
+	private int rootFilled;
+	
+	//Wall-clock deadline for the current search, 0 when there is none
+	private long deadline;
+	
+	//Set by the thread that owns a Lazy SMP search to stop this helper
+	private volatile boolean stopRequested;
+	
+	//Workers for parallel root and Lazy SMP search, created on first use
+	private ForkJoinPool pool;
+	
+	//Whether Board searches key the table by mirror-canonical hash
+	private boolean symmetry;
+	
+	//Endgame solver table when the options bring none, kept between solves
+	private TranspositionTable endgameTable;
 
 	/*
 	 * Main computer decision logic.
@@ -24,6 +82,528 @@ public class Minimax {
 	public Minimax(){		
 	}
 	
+	/*
+	 * Options-driven decision. Splits the root across threads when more than
+	 * one is asked for, uses the make/unmake Board search when asked to, and
+	 * otherwise falls through to the Node search below.
+	 */
+	public int decide(Node node, SearchOptions options){
+		if(options.isLazySmp())
+			return decide(node, options, 0).getColumn();
+		nodeCount = 0;
+		statistics.reset();
+		SearchResult bookMove = bookMove(node, options);
+		if(bookMove != null)
+			return bookMove.getColumn();
+		configure(options, options.getTranspositionTable(), node.getFilledCount());
+		if(isEndgame(node, options))
+			return solve(node, options).getColumn();
+		long start = System.nanoTime();
+		int column = decideFixedDepth(node, options);
+		statistics.iteration(options.getDepth(), System.nanoTime() - start, nodeCount);
+		for(SearchListener listener : listeners)
+			listener.searchFinished(statistics);
+		return column;
+	}
+	
+	/*
+	 * The opening book's answer for this position, or null when there is no
+	 * book, the position is not in it, or its column is not playable.
+	 */
+	private SearchResult bookMove(Node node, SearchOptions options){
+		OpeningBook book = options.getOpeningBook();
+		if(book == null || options.isOpponentWantsToLose())
+			return null;
+		long hash = node.getCanonicalHash();
+		int column = book.lookup(hash);
+		if(column >= 0 && node.isMirrored())
+			column = COLUMNS - 1 - column;
+		if(column < 0 || column >= COLUMNS || node.getHeight(column) >= ROWS)
+			return null;
+		return new SearchResult(column, book.getValue(hash), book.getDepth(hash), 0);
+	}
+	
+	//Body of the fixed-depth decide, once the search state is set up.
+	private int decideFixedDepth(Node node, SearchOptions options){
+		if(!options.isMakeUnmake() && options.getThreads() <= 1)
+			return decideWithNodes(node, options.getDepth(), options.isABPrune(), 
+								   options.isOpponentWantsToLose());
+		
+		Board board = new Board(node);
+		int[] values = new int[COLUMNS];
+		int best;
+		if(options.getThreads() > 1)
+			best = searchRootInParallel(node, options, values);
+		else
+			best = searchRoot(board, options.getDepth(), options.isABPrune(), 
+							  columnOrder(), values, true, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		
+		if(options.isOpponentWantsToLose()){
+			int playerWillLose = guaranteeLoss(node, board, values);
+			if (playerWillLose > -1)
+				return playerWillLose;
+		}
+		return best;
+	}
+	
+	/*
+	 * Iterative deepening decision with a wall-clock deadline, given in
+	 * System.currentTimeMillis() terms, or 0 for none. Searches ply 1, 2, ...
+	 * up to the options' depth on a make/unmake board, trying the previous
+	 * iteration's best column first. When the deadline passes mid-iteration
+	 * that iteration is thrown away and the last completed one is returned.
+	 *
+	 * In Lazy SMP mode, threads - 1 helpers run the same deepening from the
+	 * same position at staggered depths and column orders, sharing the
+	 * transposition table. Only the table ties them together: helpers fill
+	 * it with results this thread then hits. The answer is this thread's.
+	 */
+	public SearchResult decide(Node node, SearchOptions options, long deadline){
+		nodeCount = 0;
+		aspirationSearches = 0;
+		aspirationFailHighs = 0;
+		aspirationFailLows = 0;
+		statistics.reset();
+		SearchResult bookMove = bookMove(node, options);
+		if(bookMove != null)
+			return bookMove;
+		configure(options, options.getTranspositionTable(), node.getFilledCount());
+		this.deadline = deadline;
+		
+		//in the endgame, deepen all the way to the full board
+		boolean endgame = isEndgame(node, options);
+		int maxDepth = options.getDepth();
+		if(endgame){
+			configureEndgame();
+			maxDepth = CELLS - node.getFilledCount();
+		}
+		
+		Board board = new Board(node);
+		int[] values = new int[COLUMNS];
+		boolean lazySmp = options.isLazySmp() && options.isABPrune() && table != null;
+		Minimax[] helpers = new Minimax[lazySmp ? options.getThreads() - 1 : 0];
+		List<ForkJoinTask<?>> helperTasks = startHelpers(node, options, deadline, 
+														 endgame, maxDepth, helpers);
+		SearchResult result;
+		try {
+			result = deepen(board, options, columnOrder(), 1, maxDepth, values);
+		} finally {
+			this.deadline = 0;
+			for(Minimax helper : helpers)
+				helper.stopRequested = true;
+			for(ForkJoinTask<?> task : helperTasks)
+				task.join();
+			for(Minimax helper : helpers){
+				nodeCount += helper.nodeCount;
+				statistics.add(helper.statistics);
+			}
+		}
+		for(SearchListener listener : listeners)
+			listener.searchFinished(statistics);
+		
+		//not even ply 1 finished, fall back to the first open column
+		if(result == null){
+			int y = 0;
+			while(!board.canPlay(y))
+				y++;
+			return new SearchResult(y, 0, 0, nodeCount);
+		}
+		
+		if(options.isOpponentWantsToLose()){
+			int playerWillLose = guaranteeLoss(node, board, values);
+			if (playerWillLose > -1)
+				return new SearchResult(playerWillLose, values[playerWillLose], 
+										result.getDepth(), nodeCount);
+		}
+		return new SearchResult(result.getColumn(), result.getValue(), 
+								result.getDepth(), nodeCount);
+	}
+	
+	/*
+	 * The deepening loop. Starts at firstDepth and stops at maxDepth, when the board has no more empty cells to search, or when the
+	 * search times out or is stopped. Returns the last completed iteration,
+	 * or null if none completed, and leaves that iteration's root values in
+	 * completedValues. The board is always left at the root, even when a
+	 * timeout unwinds an iteration halfway down the tree.
+	 */
+	private SearchResult deepen(Board board, SearchOptions options, int[] order, 
+								int firstDepth, int maxDepth, int[] completedValues){
+		int[] values = new int[COLUMNS];
+		maxDepth = Math.min(maxDepth, CELLS - board.getFilledCount());
+		boolean aspiration = options.getAspirationWindow() > 0 && options.isABPrune() 
+				&& !options.isOpponentWantsToLose();
+		SearchResult result = null;
+		int rootMarkers = board.getFilledCount();
+		try {
+			for(int depth = firstDepth; depth <= maxDepth; depth++){
+				long start = System.nanoTime();
+				long startNodes = nodeCount;
+				int best;
+				if(aspiration && result != null)
+					best = searchAspiration(board, depth, options, order, values, result.getValue());
+				else
+					best = searchRoot(board, depth, options.isABPrune(), order, values, 
+									  options.isOpponentWantsToLose(), 
+									  Integer.MIN_VALUE, Integer.MAX_VALUE);
+				result = new SearchResult(best, values[best], depth, nodeCount);
+				System.arraycopy(values, 0, completedValues, 0, COLUMNS);
+				moveToFront(order, best);
+				statistics.iteration(depth, System.nanoTime() - start, nodeCount - startNodes);
+				for(SearchListener listener : listeners)
+					listener.iterationFinished(depth, statistics);
+			}
+		} catch (SearchTimeout e) {
+			//keep the last completed iteration
+		} finally {
+			while(board.getFilledCount() > rootMarkers)
+				board.undo();
+		}
+		return result;
+	}
+	
+	/*
+	 * Starts one Lazy SMP helper per slot in helpers on the pool. Helper i
+	 * starts at depth 1 or 2 depending on its parity and tries the columns
+	 * rotated by i, so the helpers spread over different parts of the tree.
+	 */
+	private List<ForkJoinTask<?>> startHelpers(Node node, SearchOptions options, long deadline, 
+											   boolean endgame, int maxDepth, Minimax[] helpers){
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+		if(helpers.length == 0)
+			return tasks;
+		ForkJoinPool workers = pool(options.getThreads());
+		for(int i = 0; i < helpers.length; i++){
+			Minimax helper = new Minimax();
+			helper.configure(options, table, rootFilled);
+			if(endgame)
+				helper.configureEndgame();
+			helper.deadline = deadline;
+			helpers[i] = helper;
+			int[] order = new int[COLUMNS];
+			for(int y = 0; y < COLUMNS; y++)
+				order[y] = (y + i + 1) % COLUMNS;
+			int firstDepth = 1 + ((i + 1) & 1);
+			tasks.add(workers.submit(() -> {
+				helper.deepen(new Board(node), options, order, firstDepth, maxDepth, 
+							  new int[COLUMNS]);
+			}));
+		}
+		return tasks;
+	}
+	
+	/*
+	 * Root iteration inside an aspiration window around the previous
+	 * iteration's value. When the best value falls on or outside an edge of
+	 * the window, that edge is moved out by the window times the widening
+	 * factor, again and again, and the iteration is searched again.
+	 */
+	private int searchAspiration(Board board, int depth, SearchOptions options, 
+								 int[] order, int[] values, int previous){
+		long lowDelta = options.getAspirationWindow();
+		long highDelta = lowDelta;
+		int widening = Math.max(2, options.getAspirationWidening());
+		while(true){
+			int alpha = (int) Math.max(Integer.MIN_VALUE, previous - lowDelta);
+			int beta = (int) Math.min(Integer.MAX_VALUE, previous + highDelta);
+			aspirationSearches++;
+			int best = searchRoot(board, depth, true, order, values, false, alpha, beta);
+			int value = values[best];
+			if(value <= alpha && alpha > Integer.MIN_VALUE){
+				aspirationFailLows++;
+				lowDelta *= widening;
+			} else if(value >= beta && beta < Integer.MAX_VALUE){
+				aspirationFailHighs++;
+				highDelta *= widening;
+			} else {
+				return best;
+			}
+		}
+	}
+	
+	/*
+	 * One ply of the make/unmake search at the root, inside the window
+	 * alpha to beta. Searches the playable columns in the given order,
+	 * records each value by column and returns the best column, stopping
+	 * early once a value reaches beta. With fullWindow every child gets an
+	 * exact value; without it later children are searched against the best
+	 * value so far and may only return an upper bound.
+	 */
+	private int searchRoot(Board board, int depth, boolean ABPrune, int[] order, 
+						   int[] values, boolean fullWindow, int alpha, int beta){
+		int best = -1;
+		for(int y : order){
+			if(!board.canPlay(y) || skipMirrorColumn(board, y))
+				continue;
+			board.play(y);
+			if(ABPrune)
+				values[y] = alphaBeta(board, depth - 1, 
+									  fullWindow ? Integer.MIN_VALUE : alpha, beta);
+			else
+				values[y] = minimax(board, depth - 1);
+			board.undo();
+			if(best == -1 || values[y] > values[best]){
+				best = y;
+				alpha = Math.max(alpha, values[y]);
+				if(values[y] >= beta)
+					break;
+			}
+		}
+		copyMirrorValues(board, values);
+		return best;
+	}
+	
+	/*
+	 * Root search split over a ForkJoinPool, one task per column, each with
+	 * its own Board and Minimax. With alpha-beta the first open column is
+	 * searched alone (Young Brothers Wait) and its value seeds a shared
+	 * alpha that the remaining columns read when they start and raise when
+	 * they finish.
+	 *
+	 * Columns are searched with a window opening one below the shared alpha,
+	 * so any column that ties or beats it gets an exact value. Picking the
+	 * highest value with the lowest column then gives the same answer as
+	 * the sequential full-window root. Workers share the transposition table.
+	 */
+	private int searchRootInParallel(Node node, SearchOptions options, int[] values){
+		ForkJoinPool workers = pool(options.getThreads());
+		boolean ABPrune = options.isABPrune();
+		boolean fullWindow = !ABPrune || options.isOpponentWantsToLose();
+		AtomicLong nodes = new AtomicLong();
+		
+		Board board = new Board(node);
+		int first = 0;
+		while(!board.canPlay(first))
+			first++;
+		values[first] = searchColumn(node, first, options, Integer.MIN_VALUE, nodes);
+		AtomicInteger alpha = new AtomicInteger(values[first]);
+		
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+		for(int y = first + 1; y < COLUMNS; y++){
+			if(!board.canPlay(y) || skipMirrorColumn(board, y))
+				continue;
+			final int column = y;
+			tasks.add(workers.submit(() -> {
+				int bound = fullWindow ? Integer.MIN_VALUE : alpha.get() - 1;
+				values[column] = searchColumn(node, column, options, bound, nodes);
+				alpha.accumulateAndGet(values[column], Math::max);
+			}));
+		}
+		for(ForkJoinTask<?> task : tasks)
+			task.join();
+		nodeCount += nodes.get();
+		copyMirrorValues(board, values);
+		
+		int best = first;
+		for(int y = first + 1; y < COLUMNS; y++){
+			if(board.canPlay(y) && values[y] > values[best])
+				best = y;
+		}
+		return best;
+	}
+	
+	/*
+	 * Sets up the per-search state this Minimax reads from options. The table
+	 * is passed separately so workers can share their parent's, and the
+	 * root's marker count so their statistics count plies from the same root.
+	 */
+	private void configure(SearchOptions options, TranspositionTable table, int rootFilled){
+		this.table = table;
+		this.rootFilled = rootFilled;
+		this.ordering = MoveOrdering.create(options);
+		this.principalVariation = options.isPrincipalVariation();
+		this.symmetry = options.isSymmetry();
+	}
+	
+	/*
+	 * Switches an already configured search to endgame solving: every move
+	 * ordering heuristic on, points first above all, and the solver's own
+	 * table when the options brought none.
+	 */
+	private void configureEndgame(){
+		if(table == null){
+			if(endgameTable == null)
+				endgameTable = new TranspositionTable(18, 
+						TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+			table = endgameTable;
+		}
+		ordering = new MoveOrdering(true, true, true, true);
+	}
+	
+	//Whether the options' endgame threshold covers this position.
+	private boolean isEndgame(Node node, SearchOptions options){
+		int empty = CELLS - node.getFilledCount();
+		return options.getEndgameThreshold() > 0 && empty <= options.getEndgameThreshold();
+	}
+	
+	/*
+	 * Exact endgame solve. Searches alpha-beta from node to the full board,
+	 * however deep that is, so the value is the final oScore - xScore under
+	 * perfect play from both sides. Reuses the options' transposition table
+	 * (or the solver's own, kept between solves) and orders moves by points.
+	 * Respects the options' Principal Variation Search switch, and
+	 * guarantees the loss when the opponent wants to lose.
+	 */
+	public SearchResult solve(Node node, SearchOptions options){
+		nodeCount = 0;
+		statistics.reset();
+		configure(options, options.getTranspositionTable(), node.getFilledCount());
+		configureEndgame();
+		long start = System.nanoTime();
+		int depth = CELLS - node.getFilledCount();
+		
+		Board board = new Board(node);
+		int[] values = new int[COLUMNS];
+		int best = searchRoot(board, depth, true, columnOrder(), values, 
+							  options.isOpponentWantsToLose(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+		statistics.iteration(depth, System.nanoTime() - start, nodeCount);
+		for(SearchListener listener : listeners)
+			listener.searchFinished(statistics);
+		
+		if(options.isOpponentWantsToLose()){
+			int playerWillLose = guaranteeLoss(node, board, values);
+			if (playerWillLose > -1)
+				return new SearchResult(playerWillLose, values[playerWillLose], depth, nodeCount);
+		}
+		return new SearchResult(best, values[best], depth, nodeCount);
+	}
+
+	/*
+	 * Alpha-beta value of one position to the options' depth, inside the
+	 * window alpha to beta, from O's side whoever is to move. Fail-soft: a
+	 * value at or below alpha is only an upper bound, one at or above beta
+	 * only a lower bound. This is the unit of work a distributed search
+	 * hands its workers, so there is no root column, no book and no endgame
+	 * switch. Returns null when stop() is called before it finishes, even
+	 * before it starts; call clearStop() to search again after a stop.
+	 */
+	public SearchResult searchWindow(Node node, SearchOptions options, int alpha, int beta){
+		nodeCount = 0;
+		statistics.reset();
+		//checkTime only looks every TIME_CHECK_INTERVAL nodes, too late for a small job
+		if(stopRequested)
+			return null;
+		configure(options, options.getTranspositionTable(), node.getFilledCount());
+		long start = System.nanoTime();
+		int value;
+		try {
+			value = alphaBeta(new Board(node), options.getDepth(), alpha, beta);
+		} catch (SearchTimeout e) {
+			return null;
+		}
+		statistics.iteration(options.getDepth(), System.nanoTime() - start, nodeCount);
+		return new SearchResult(-1, value, options.getDepth(), nodeCount);
+	}
+
+	/*
+	 * Transposition table key for a board: its hash, or with symmetry on the
+	 * canonical hash shared with its mirror image. Entries always hold
+	 * columns in the orientation of the position whose hash is the key.
+	 */
+	private long tableKey(Board board){
+		return symmetry ? board.getCanonicalHash() : board.getHash();
+	}
+	
+	/*
+	 * Maps a column between the board's orientation and its table entry's.
+	 * The mirror is its own inverse, so this serves probes and stores.
+	 */
+	private int tableColumn(Board board, int y){
+		if(y < 0 || !symmetry || !board.isMirrored())
+			return y;
+		return COLUMNS - 1 - y;
+	}
+	
+	/*
+	 * With symmetry on, a root that is its own mirror image only needs
+	 * columns 0-4 searched: column y and 8 - y lead to mirror positions.
+	 */
+	private boolean skipMirrorColumn(Board board, int y){
+		return symmetry && y > COLUMNS - 1 - y && board.isSymmetric();
+	}
+	
+	//Gives each skipped mirror column its twin's value.
+	private void copyMirrorValues(Board board, int[] values){
+		for(int y = 0; y < COLUMNS; y++){
+			if(board.canPlay(y) && skipMirrorColumn(board, y))
+				values[y] = values[COLUMNS - 1 - y];
+		}
+	}
+	
+	/*
+	 * Alpha-beta below the root, with the window and the result from O's
+	 * side like abPrune. Runs abPrune, or pvs when Principal Variation
+	 * Search is on.
+	 */
+	private int alphaBeta(Board board, int depth, int alpha, int beta){
+		if(!principalVariation)
+			return abPrune(board, depth, alpha, beta);
+		alpha = Math.max(alpha, -INFINITY);
+		beta = Math.min(beta, INFINITY);
+		if(board.isXToMove())
+			return -pvs(board, depth, -beta, -alpha);
+		return pvs(board, depth, alpha, beta);
+	}
+	
+	/*
+	 * Searches one root column on a private board and Minimax, then adds the
+	 * worker's statistics to this one's.
+	 */
+	private int searchColumn(Node node, int y, SearchOptions options, 
+							 int alpha, AtomicLong nodes){
+		int depth = options.getDepth();
+		Minimax worker = new Minimax();
+		worker.configure(options, table, rootFilled);
+		Board board = new Board(node);
+		board.play(y);
+		int value;
+		if(options.isABPrune())
+			value = worker.alphaBeta(board, depth - 1, alpha, Integer.MAX_VALUE);
+		else
+			value = worker.minimax(board, depth - 1);
+		nodes.addAndGet(worker.getNodeCount());
+		synchronized(statistics){
+			statistics.add(worker.statistics);
+		}
+		return value;
+	}
+	
+	//Pool with the given parallelism, replaced when the thread count changes.
+	private ForkJoinPool pool(int threads){
+		if(pool == null || pool.getParallelism() != threads){
+			if(pool != null)
+				pool.shutdown();
+			pool = new ForkJoinPool(threads);
+		}
+		return pool;
+	}
+	
+	//Columns 0 to 8, the order the search tries them in by default.
+	private static int[] columnOrder(){
+		int[] order = new int[COLUMNS];
+		for(int y = 0; y < COLUMNS; y++)
+			order[y] = y;
+		return order;
+	}
+	
+	//Moves column to the front of order, keeping the rest in sequence.
+	private static void moveToFront(int[] order, int column){
+		int i = 0;
+		while(order[i] != column)
+			i++;
+		System.arraycopy(order, 0, order, 1, i);
+		order[0] = column;
+	}
+	
+	/*
+	 * Throws SearchTimeout once the deadline has passed or a stop was
+	 * requested. Only looks every TIME_CHECK_INTERVAL nodes.
+	 */
+	private void checkTime(){
+		if((nodeCount & (TIME_CHECK_INTERVAL - 1)) == 0 && (stopRequested 
+				|| deadline != 0 && System.currentTimeMillis() >= deadline))
+			throw SearchTimeout.INSTANCE;
+	}
+	
 	/*
 	 * Calls the minimax working function and returns the column of the best 
 	 * move for the computer to make. 
@@ -32,6 +612,14 @@ public class Minimax {
 					  int depth, 
 					  boolean ABPrune, 
 					  boolean opponentWantsToLose){
+		return decide(node, new SearchOptions(depth, ABPrune, opponentWantsToLose));
+	}
+	
+	//Root of the Node search, builds and sorts the first ply of children.
+	private int decideWithNodes(Node node, 
+								int depth, 
+								boolean ABPrune, 
+								boolean opponentWantsToLose){
 		
 		//Alpha-beta pruning driver, calls first ply
 		if(ABPrune) {
@@ -72,7 +660,10 @@ public class Minimax {
 	 * Minimax decision logic. Taken from book & wikipedia pseudocode.
 	 */
 	public int minimax(Node node, int depth, boolean maxPlayer){
-		if(depth == 0 || TerminalTest.isTerminalState(node)){
+		nodeCount++;
+		statistics.node(node.getFilledCount() - rootFilled);
+		if(depth == 0 || TerminalTest.isTerminalStateFast(node)){
+			statistics.leaf();
 			node.setMinMaxVal(node.getOScore() - node.getXScore());
 			//System.out.println("O: " + node.getOScore() + " X: " + node.getXScore() + " minmax: " + node.getMinMaxVal());
 			return node.getMinMaxVal();
@@ -99,43 +690,462 @@ public class Minimax {
 	
 	/*
 	 * A_B Pruning decision logic. Used Pseudocode from Wikipedia & textbook.
+	 * Consults the transposition table first when one is set.
 	 */
 	public int abPrune(Node node, int depth, int alpha, int beta, boolean maxPlayer){
-		if(depth == 0 || TerminalTest.isTerminalState(node)){
+		nodeCount++;
+		statistics.node(node.getFilledCount() - rootFilled);
+		if(depth == 0 || TerminalTest.isTerminalStateFast(node)){
+			statistics.leaf();
 			node.setMinMaxVal(node.getOScore() - node.getXScore());
 			return node.getMinMaxVal();
 		}
 		
+		long key = node.getHash();
+		if(table != null){
+			long entry = table.probe(key);
+			if(entry != 0 && isUsable(entry, depth, alpha, beta))
+				return TranspositionTable.getScore(entry);
+		}
+		int alphaOrig = alpha;
+		int betaOrig = beta;
+		int bestColumn = -1;
+		int childIndex = 0;
 
 		if(maxPlayer){
 			int bestValue = Integer.MIN_VALUE;
 			List<Node> children = node.getChildren();
 			for(Node child : children){
-				bestValue = Math.max(bestValue, abPrune(child, depth - 1, alpha, beta, false));
+				int value = abPrune(child, depth - 1, alpha, beta, false);
+				if(value > bestValue){
+					bestValue = value;
+					bestColumn = child.getAction().getyCoord();
+				}
 				
 				if(bestValue >= beta){
-					return bestValue;		
+					statistics.cutoff(childIndex);
+					break;		
 				}			
 				alpha = Math.max(alpha, bestValue);
+				childIndex++;
 			}
+			storeResult(key, depth, bestValue, alphaOrig, betaOrig, bestColumn);
 			return bestValue;
 			
 		} else {
 			int bestValue = Integer.MAX_VALUE;
 			List<Node> children = node.getChildren();
 			for(Node child : children){
-				bestValue = Math.max(bestValue, abPrune(child, depth - 1, alpha, beta, true));
-				beta = Math.min(beta, bestValue);
+				int value = abPrune(child, depth - 1, alpha, beta, true);
+				if(value < bestValue){
+					bestValue = value;
+					bestColumn = child.getAction().getyCoord();
+				}
 				
 				if(bestValue <= alpha){
-					return bestValue;		
+					statistics.cutoff(childIndex);
+					break;		
 				}
 				beta = Math.min(beta, bestValue);
+				childIndex++;
 			}
+			storeResult(key, depth, bestValue, alphaOrig, betaOrig, bestColumn);
 			return bestValue;		
 		}
 	}
 	
+	/*
+	 * True when the table entry was searched at least as deep and its
+	 * score decides this node for the window: exact, a lower bound at or
+	 * above beta, or an upper bound at or below alpha.
+	 */
+	private static boolean isUsable(long entry, int depth, int alpha, int beta){
+		if(TranspositionTable.getDepth(entry) < depth)
+			return false;
+		int score = TranspositionTable.getScore(entry);
+		switch(TranspositionTable.getBound(entry)){
+			case TranspositionTable.EXACT: return true;
+			case TranspositionTable.LOWER: return score >= beta;
+			default: return score <= alpha;
+		}
+	}
+	
+	//Records a node's value with the bound type implied by its window.
+	private void storeResult(long key, int depth, int value, int alpha, int beta, int bestColumn){
+		if(table == null)
+			return;
+		byte bound;
+		if(value <= alpha)
+			bound = TranspositionTable.UPPER;
+		else if(value >= beta)
+			bound = TranspositionTable.LOWER;
+		else
+			bound = TranspositionTable.EXACT;
+		table.store(key, depth, bound, value, bestColumn);
+	}
+	
+	
+	
+	/*
+	 * Make/unmake minimax. Plays each column on the shared board, recurses and
+	 * takes the move back, so nothing is allocated per node. O maximizes.
+	 */
+	public int minimax(Board board, int depth){
+		nodeCount++;
+		statistics.node(board.getFilledCount() - rootFilled);
+		checkTime();
+		if(depth == 0 || board.isFull()){
+			statistics.leaf();
+			return board.getOScore() - board.getXScore();
+		}
+		
+		boolean maxPlayer = !board.isXToMove();
+		int bestMove = maxPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		for(int y = 0; y < COLUMNS; y++){
+			if(!board.canPlay(y))
+				continue;
+			board.play(y);
+			int value = minimax(board, depth - 1);
+			board.undo();
+			bestMove = maxPlayer ? Math.max(bestMove, value) : Math.min(bestMove, value);
+		}
+		return bestMove;
+	}
+	
+	/*
+	 * Make/unmake alpha-beta, same pruning and table use as the Node version.
+	 * Columns are tried in the move ordering's order when one is set.
+	 */
+	public int abPrune(Board board, int depth, int alpha, int beta){
+		nodeCount++;
+		statistics.node(board.getFilledCount() - rootFilled);
+		checkTime();
+		if(depth == 0 || board.isFull()){
+			statistics.leaf();
+			return board.getOScore() - board.getXScore();
+		}
+		
+		long key = tableKey(board);
+		int tableColumn = -1;
+		if(table != null){
+			long entry = table.probe(key);
+			if(entry != 0){
+				if(isUsable(entry, depth, alpha, beta))
+					return TranspositionTable.getScore(entry);
+				tableColumn = tableColumn(board, TranspositionTable.getBestColumn(entry));
+			}
+		}
+		int[] columns = ordering == null ? COLUMN_ORDER : ordering.order(board, tableColumn);
+		int alphaOrig = alpha;
+		int betaOrig = beta;
+		int bestColumn = -1;
+		int childIndex = 0;
+		
+		if(!board.isXToMove()){
+			int bestValue = Integer.MIN_VALUE;
+			for(int y : columns){
+				if(y < 0)
+					break;
+				if(!board.canPlay(y))
+					continue;
+				board.play(y);
+				int value = abPrune(board, depth - 1, alpha, beta);
+				board.undo();
+				if(value > bestValue){
+					bestValue = value;
+					bestColumn = y;
+				}
+				if(bestValue >= beta){
+					statistics.cutoff(childIndex);
+					if(ordering != null)
+						ordering.recordCutoff(board, y, depth);
+					break;
+				}
+				alpha = Math.max(alpha, bestValue);
+				childIndex++;
+			}
+			storeResult(key, depth, bestValue, alphaOrig, betaOrig, tableColumn(board, bestColumn));
+			return bestValue;
+			
+		} else {
+			int bestValue = Integer.MAX_VALUE;
+			for(int y : columns){
+				if(y < 0)
+					break;
+				if(!board.canPlay(y))
+					continue;
+				board.play(y);
+				int value = abPrune(board, depth - 1, alpha, beta);
+				board.undo();
+				if(value < bestValue){
+					bestValue = value;
+					bestColumn = y;
+				}
+				if(bestValue <= alpha){
+					statistics.cutoff(childIndex);
+					if(ordering != null)
+						ordering.recordCutoff(board, y, depth);
+					break;
+				}
+				beta = Math.min(beta, bestValue);
+				childIndex++;
+			}
+			storeResult(key, depth, bestValue, alphaOrig, betaOrig, tableColumn(board, bestColumn));
+			return bestValue;
+		}
+	}
+	
+	/*
+	 * Principal Variation Search in negamax form: values are from the point
+	 * of view of the side to move. The first column gets the full window,
+	 * every later one a null window scout around alpha, and a scout that
+	 * lands inside the window is searched again with the full window.
+	 * Uses the same table (which stores O's point of view) and move ordering
+	 * as abPrune.
+	 */
+	public int pvs(Board board, int depth, int alpha, int beta){
+		nodeCount++;
+		statistics.node(board.getFilledCount() - rootFilled);
+		checkTime();
+		boolean xToMove = board.isXToMove();
+		if(depth == 0 || board.isFull()){
+			statistics.leaf();
+			int value = board.getOScore() - board.getXScore();
+			return xToMove ? -value : value;
+		}
+		
+		long key = tableKey(board);
+		int tableColumn = -1;
+		if(table != null){
+			long entry = table.probe(key);
+			if(entry != 0){
+				boolean usable = xToMove ? isUsable(entry, depth, -beta, -alpha)
+										 : isUsable(entry, depth, alpha, beta);
+				if(usable){
+					int score = TranspositionTable.getScore(entry);
+					return xToMove ? -score : score;
+				}
+				tableColumn = tableColumn(board, TranspositionTable.getBestColumn(entry));
+			}
+		}
+		int[] columns = ordering == null ? COLUMN_ORDER : ordering.order(board, tableColumn);
+		int alphaOrig = alpha;
+		int bestValue = -INFINITY;
+		int bestColumn = -1;
+		boolean first = true;
+		int childIndex = 0;
+		
+		for(int y : columns){
+			if(y < 0)
+				break;
+			if(!board.canPlay(y))
+				continue;
+			board.play(y);
+			int value;
+			if(first){
+				value = -pvs(board, depth - 1, -beta, -alpha);
+				first = false;
+			} else {
+				value = -pvs(board, depth - 1, -alpha - 1, -alpha);
+				if(value > alpha && value < beta)
+					value = -pvs(board, depth - 1, -beta, -alpha);
+			}
+			board.undo();
+			if(value > bestValue){
+				bestValue = value;
+				bestColumn = y;
+			}
+			if(bestValue > alpha)
+				alpha = bestValue;
+			if(alpha >= beta){
+				statistics.cutoff(childIndex);
+				if(ordering != null)
+					ordering.recordCutoff(board, y, depth);
+				break;
+			}
+			childIndex++;
+		}
+		
+		if(xToMove)
+			storeResult(key, depth, -bestValue, -beta, -alphaOrig, tableColumn(board, bestColumn));
+		else
+			storeResult(key, depth, bestValue, alphaOrig, beta, tableColumn(board, bestColumn));
+		return bestValue;
+	}
+	
+	/*
+	 * Fixed-depth decision on a board of any size, for whichever side is to
+	 * move. Searches the open columns with abPrune, or minimax without
+	 * alpha-beta pruning, on the GeometryBoard itself. The table, move
+	 * ordering, book and losing mode are keyed to the 9x9 layout and are
+	 * not used here.
+	 */
+	public SearchResult decide(GeometryBoard board, SearchOptions options){
+		nodeCount = 0;
+		statistics.reset();
+		rootFilled = board.getFilledCount();
+		deadline = 0;
+		long start = System.nanoTime();
+		int depth = options.getDepth();
+		boolean maxPlayer = !board.isXToMove();
+		int alpha = Integer.MIN_VALUE;
+		int beta = Integer.MAX_VALUE;
+		int best = -1;
+		int bestValue = 0;
+		for(int y = 0; y < board.getGeometry().getColumns(); y++){
+			if(!board.canPlay(y))
+				continue;
+			board.play(y);
+			int value = options.isABPrune() ? abPrune(board, depth - 1, alpha, beta)
+											: minimax(board, depth - 1);
+			board.undo();
+			if(best == -1 || (maxPlayer ? value > bestValue : value < bestValue)){
+				best = y;
+				bestValue = value;
+				if(maxPlayer)
+					alpha = Math.max(alpha, value);
+				else
+					beta = Math.min(beta, value);
+			}
+		}
+		statistics.iteration(depth, System.nanoTime() - start, nodeCount);
+		for(SearchListener listener : listeners)
+			listener.searchFinished(statistics);
+		return new SearchResult(best, bestValue, depth, nodeCount);
+	}
+
+	//Make/unmake minimax on a board of any size. O maximizes.
+	public int minimax(GeometryBoard board, int depth){
+		nodeCount++;
+		statistics.node(board.getFilledCount() - rootFilled);
+		checkTime();
+		if(depth == 0 || board.isFull()){
+			statistics.leaf();
+			return board.getOScore() - board.getXScore();
+		}
+
+		boolean maxPlayer = !board.isXToMove();
+		int bestMove = maxPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		for(int y = 0; y < board.getGeometry().getColumns(); y++){
+			if(!board.canPlay(y))
+				continue;
+			board.play(y);
+			int value = minimax(board, depth - 1);
+			board.undo();
+			bestMove = maxPlayer ? Math.max(bestMove, value) : Math.min(bestMove, value);
+		}
+		return bestMove;
+	}
+
+	/*
+	 * Make/unmake alpha-beta on a board of any size, fail-soft like the
+	 * Board version, trying columns left to right.
+	 */
+	public int abPrune(GeometryBoard board, int depth, int alpha, int beta){
+		nodeCount++;
+		statistics.node(board.getFilledCount() - rootFilled);
+		checkTime();
+		if(depth == 0 || board.isFull()){
+			statistics.leaf();
+			return board.getOScore() - board.getXScore();
+		}
+
+		int columns = board.getGeometry().getColumns();
+		if(!board.isXToMove()){
+			int bestValue = Integer.MIN_VALUE;
+			for(int y = 0; y < columns; y++){
+				if(!board.canPlay(y))
+					continue;
+				board.play(y);
+				bestValue = Math.max(bestValue, abPrune(board, depth - 1, alpha, beta));
+				board.undo();
+				if(bestValue >= beta)
+					break;
+				alpha = Math.max(alpha, bestValue);
+			}
+			return bestValue;
+		} else {
+			int bestValue = Integer.MAX_VALUE;
+			for(int y = 0; y < columns; y++){
+				if(!board.canPlay(y))
+					continue;
+				board.play(y);
+				bestValue = Math.min(bestValue, abPrune(board, depth - 1, alpha, beta));
+				board.undo();
+				if(bestValue <= alpha)
+					break;
+				beta = Math.min(beta, bestValue);
+			}
+			return bestValue;
+		}
+	}
+
+	/*
+	 * Statistics of the last decide. The object is reused by the next one,
+	 * copy it to keep it.
+	 */
+	public SearchStatistics getStatistics(){
+		return statistics;
+	}
+	
+	//Listeners are told about every iteration and every finished decide.
+	public void addSearchListener(SearchListener listener){
+		listeners.add(listener);
+	}
+	
+	public void removeSearchListener(SearchListener listener){
+		listeners.remove(listener);
+	}
+	
+	//Number of positions the last search visited.
+	public long getNodeCount(){
+		return nodeCount;
+	}
+	
+	/*
+	 * Aspiration statistics for the last timed decide: root searches run
+	 * inside a window, and how many of them failed high or low and had to
+	 * be searched again.
+	 */
+	public long getAspirationSearches(){
+		return aspirationSearches;
+	}
+	
+	public long getAspirationFailHighs(){
+		return aspirationFailHighs;
+	}
+	
+	public long getAspirationFailLows(){
+		return aspirationFailLows;
+	}
+	
+	public long getAspirationReSearches(){
+		return aspirationFailHighs + aspirationFailLows;
+	}
+	
+	/*
+	 * Asks a timed decide running on another thread to stop. It returns the
+	 * last completed iteration, as if its deadline had passed. The request
+	 * stands until clearStop(), so a stop that lands just before a search
+	 * starts still stops it.
+	 */
+	public void stop(){
+		stopRequested = true;
+	}
+	
+	/*
+	 * Takes back a stop so the next search runs. Call it where the search
+	 * about to start is published to the threads that may stop it, under
+	 * the same lock, so no stop meant for that search is lost.
+	 */
+	public void clearStop(){
+		stopRequested = false;
+	}
+	
+	//Table used by the last decide, or null. Read its hit rate from here.
+	public TranspositionTable getTranspositionTable(){
+		return table;
+	}
 	
 	
 	/*
@@ -158,6 +1168,207 @@ public class Minimax {
 		}
 		return -1;
 	}
+	
+	/*
+	 * guaranteeLoss for the make/unmake search, which keeps root values in
+	 * an array indexed by column instead of in child nodes.
+	 */
+	private int guaranteeLoss(Node node, Board board, int[] values){
+		int bestVal = Integer.MIN_VALUE;
+		boolean allMatch = true;
+		for(int y = 0; y < COLUMNS; y++){
+			if(!board.canPlay(y))
+				continue;
+			if(bestVal == Integer.MIN_VALUE)
+				bestVal = values[y];
+			else if(values[y] != bestVal)
+				allMatch = false;
+		}
+		char[][] state = node.getState();
+		if(allMatch && state[0][node.getAction().getyCoord()] != 'X')
+			return node.getAction().getyCoord();
+		return -1;
+	}
+	
+	/*
+	 * Strictly for unit testing. Checks Principal Variation Search against
+	 * the brute-force Node minimax: on random positions and at every depth
+	 * up to 6, each root column's value from pvs (with and without a table
+	 * and move ordering) has to equal the minimax value.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 1);
+		int positions = 0;
+		int mismatches = 0;
+		for(int depth = 1; depth <= 6; depth++){
+			int count = depth < 5 ? 40 : 8;
+			for(int i = 0; i < count; i++){
+				Node node = randomPosition(random, random.nextInt(60));
+				if(TerminalTest.isTerminalState(node))
+					continue;
+				positions++;
+				Minimax reference = new Minimax();
+				Minimax plain = new Minimax();
+				plain.principalVariation = true;
+				Minimax tuned = new Minimax();
+				tuned.principalVariation = true;
+				tuned.table = new TranspositionTable(16, TranspositionTable.ReplacementPolicy.ALWAYS);
+				tuned.ordering = new MoveOrdering(true, true, true, true);
+				
+				for(Node child : node.getChildren()){
+					//O is the max player, and moves next when X made the child
+					int expected = reference.minimax(child, depth - 1, 
+													 child.getAction().playerIsX);
+					Board board = new Board(node);
+					board.play(child.getAction().getyCoord());
+					int fromPlain = plain.alphaBeta(board, depth - 1, 
+													Integer.MIN_VALUE, Integer.MAX_VALUE);
+					int fromTuned = tuned.alphaBeta(board, depth - 1, 
+													Integer.MIN_VALUE, Integer.MAX_VALUE);
+					if(fromPlain != expected || fromTuned != expected){
+						mismatches++;
+						System.out.println("Mismatch at depth " + depth + ", column " 
+								+ child.getAction().getyCoord() + ": minimax " + expected 
+								+ ", pvs " + fromPlain + ", pvs with table " + fromTuned);
+					}
+				}
+			}
+		}
+		System.out.println("Checked " + positions + " positions, " + mismatches + " mismatches");
+		
+		//endgame solves against full-depth minimax, one solver across positions
+		Minimax solver = new Minimax();
+		SearchOptions options = new SearchOptions(1, true, false);
+		options.setEndgameThreshold(10);
+		int solved = 0;
+		mismatches = 0;
+		while(solved < 30){
+			Node node = randomPosition(random, 72 + 2 * random.nextInt(5));
+			if(node.getFilledCount() % 2 != 0 || TerminalTest.isTerminalState(node))
+				continue;
+			solved++;
+			int empty = CELLS - node.getFilledCount();
+			Board board = new Board(node);
+			int expected = Integer.MIN_VALUE;
+			for(int y = 0; y < COLUMNS; y++){
+				if(!board.canPlay(y))
+					continue;
+				board.play(y);
+				expected = Math.max(expected, new Minimax().minimax(board, empty - 1));
+				board.undo();
+			}
+			SearchResult exact = solver.solve(node, options);
+			SearchResult timed = solver.decide(node, options, 0);
+			board.play(solver.decide(node, options));
+			int chosen = new Minimax().minimax(board, empty - 1);
+			if(exact.getValue() != expected || timed.getValue() != expected || chosen != expected){
+				mismatches++;
+				System.out.println("Endgame mismatch with " + empty + " empty: minimax " + expected 
+						+ ", solve " + exact.getValue() + ", timed " + timed.getValue() 
+						+ ", chosen column " + chosen);
+			}
+		}
+		System.out.println("Solved " + solved + " endgames, " + mismatches + " mismatches");
+		
+		//symmetry on and off, the empty board first
+		mismatches = 0;
+		long plainNodes = 0, mirrorNodes = 0;
+		for(int i = 0; i < 40; i++){
+			Node node = i == 0 ? new Node() : randomPosition(random, 2 * random.nextInt(30));
+			if(TerminalTest.isTerminalState(node))
+				continue;
+			SearchResult[] results = new SearchResult[2];
+			for(int on = 0; on < 2; on++){
+				SearchOptions tuned = new SearchOptions(6, true, false);
+				tuned.setTranspositionTable(new TranspositionTable(16, 
+						TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+				tuned.setMoveOrdering(true);
+				tuned.setSymmetry(on == 1);
+				results[on] = new Minimax().decide(node, tuned, 0);
+			}
+			plainNodes += results[0].getNodeCount();
+			mirrorNodes += results[1].getNodeCount();
+			if(results[0].getValue() != results[1].getValue())
+				mismatches++;
+			if(i == 0)
+				System.out.println("Empty board, depth 6: " + results[0].getNodeCount() 
+						+ " nodes without symmetry, " + results[1].getNodeCount() + " with");
+		}
+		System.out.println("Symmetry: " + mismatches + " value mismatches, " + plainNodes
+				+ " nodes without, " + mirrorNodes + " with");
+
+		//The any-size search on a 9x9 GeometryBoard must match the Board search
+		mismatches = 0;
+		Minimax plain = new Minimax();
+		SearchOptions geometryOptions = new SearchOptions(5, true, false);
+		for(int i = 0; i < 40; i++){
+			Board board = new Board(new Node());
+			GeometryBoard geometryBoard = GeometryBoard.create(BoardGeometry.STANDARD);
+			for(int move = 0; move < 10 + i; move++){
+				int y;
+				do {
+					y = random.nextInt(COLUMNS);
+				} while(!board.canPlay(y));
+				board.play(y);
+				geometryBoard.play(y);
+			}
+			geometryOptions.setABPrune(i % 4 != 0);
+			int expected = plain.minimax(board, 5);
+			if(plain.decide(geometryBoard, geometryOptions).getValue() != expected
+					|| plain.abPrune(geometryBoard, 5, Integer.MIN_VALUE, Integer.MAX_VALUE) != expected)
+				mismatches++;
+		}
+		System.out.println("Any-size search on 9x9: " + mismatches + " mismatches");
+		
+		/*
+		 * Timed losing-mode searches cut short mid-iteration: the column must
+		 * still be playable, judged on the root position and not on whatever
+		 * the aborted iteration left on the board.
+		 */
+		mismatches = 0;
+		for(int i = 0; i < 20; i++){
+			Node node = randomPosition(random, 2 * random.nextInt(30));
+			SearchOptions losing = new SearchOptions(12, true, true);
+			losing.setMakeUnmake(true);
+			SearchResult result = plain.decide(node, losing, System.currentTimeMillis() + 1 + i);
+			if(node.getHeight(result.getColumn()) >= ROWS)
+				mismatches++;
+		}
+		System.out.println("Timed out losing searches: " + mismatches + " unplayable columns");
+		
+		//a pending stop must cancel even a window search too small to reach a time check
+		Minimax stopped = new Minimax();
+		SearchOptions small = new SearchOptions(2, true, false);
+		stopped.stop();
+		SearchResult cancelled = stopped.searchWindow(new Node(), small, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		stopped.clearStop();
+		SearchResult searched = stopped.searchWindow(new Node(), small, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		System.out.println("Window search after stop: " + (cancelled == null ? "cancelled" : "ran") 
+				+ ", after clearStop: " + (searched == null ? "cancelled" : "ran"));
+	}
+	
+	//Plays the given number of random moves from the empty board.
+	private static Node randomPosition(Random random, int moves){
+		Node node = new Node();
+		for(int i = 0; i < moves && !TerminalTest.isTerminalState(node); i++){
+			List<Node> children = node.getChildren();
+			node = children.get(random.nextInt(children.size()));
+		}
+		return node;
+	}
+	
+	/*
+	 * Unwinds a search whose deadline has passed. A single instance without
+	 * a stack trace is reused, so timing out allocates nothing.
+	 */
+	private static final class SearchTimeout extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		static final SearchTimeout INSTANCE = new SearchTimeout();
+		
+		private SearchTimeout(){
+			super("search deadline passed", null, false, false);
+		}
+	}
 }
 	
 
@@ -0,0 +1,290 @@
+package simacogo.play;
+
+import simacogo.framework.Board;
+import simacogo.framework.BoardGeometry;
+import simacogo.framework.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * Monte Carlo Tree Search engine, an alternative to Minimax whose cost
+ * grows with the playout budget rather than as 9^ply.
+ *
+ * Each iteration walks the tree from the root by UCT, adds one child,
+ * plays the game out to a full board at random (or greedily by points)
+ * and credits the result to every node on the path. Trees live in flat
+ * primitive arrays indexed by node number, with nine child slots per node,
+ * and positions are never stored: the walk replays moves on one Board and
+ * undoes them afterwards, so an iteration allocates nothing.
+ *
+ * With more than one thread the search is root-parallel: every thread
+ * grows its own tree from the same root with its own random stream, and
+ * the root visit counts are summed. The most visited column is played.
+ *
+ * Unlike Minimax it plays either side, and reads only the thread count
+ * from SearchOptions; the budget is set on the engine.
+ */
+public class MonteCarlo implements DecisionEngine {
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
+	private static final int TIME_CHECK_INTERVAL = 256;
+	
+	//UCT exploration constant, for rewards between 0 and 1
+	private static final double EXPLORATION = Math.sqrt(2);
+	
+	private final int playouts;
+	private final long millis;
+	private final boolean greedyPlayouts;
+	private final long seed;
+	
+	private Tree[] trees = new Tree[0];
+	private ForkJoinPool pool;
+	private long lastPlayouts;
+	
+	/*
+	 * Stops after the given number of playouts in total, or after millis
+	 * milliseconds, whichever comes first; 0 turns a limit off. Greedy
+	 * playouts drop where the most points are, breaking ties at random.
+	 */
+	public MonteCarlo(int playouts, long millis, boolean greedyPlayouts){
+		this(playouts, millis, greedyPlayouts, System.nanoTime());
+	}
+	
+	//As above with a fixed seed, so runs repeat.
+	public MonteCarlo(int playouts, long millis, boolean greedyPlayouts, long seed){
+		if(playouts <= 0 && millis <= 0)
+			throw new IllegalArgumentException("needs a playout or time budget");
+		this.playouts = playouts;
+		this.millis = millis;
+		this.greedyPlayouts = greedyPlayouts;
+		this.seed = seed;
+	}
+	
+	@Override
+	public int decide(Node node, SearchOptions options){
+		int threads = Math.max(1, options == null ? 1 : options.getThreads());
+		long deadline = millis > 0 ? System.nanoTime() + millis * 1000000L : 0;
+		if(trees.length != threads){
+			trees = new Tree[threads];
+			for(int i = 0; i < threads; i++)
+				trees[i] = new Tree(new SplittableRandom(seed + i));
+		}
+		int share = playouts > 0 ? Math.max(1, playouts / threads) : Integer.MAX_VALUE;
+		
+		if(threads == 1){
+			trees[0].search(node, share, deadline);
+		} else {
+			ForkJoinPool workers = pool(threads);
+			List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+			for(Tree tree : trees)
+				tasks.add(workers.submit(() -> tree.search(node, share, deadline)));
+			for(ForkJoinTask<?> task : tasks)
+				task.join();
+		}
+		
+		long[] visits = new long[COLUMNS];
+		lastPlayouts = 0;
+		for(Tree tree : trees){
+			lastPlayouts += tree.visits[0];
+			for(int y = 0; y < COLUMNS; y++){
+				int child = tree.children[y];
+				if(child != 0)
+					visits[y] += tree.visits[child];
+			}
+		}
+		int best = -1;
+		for(int y = 0; y < COLUMNS; y++){
+			if(node.getHeight(y) < ROWS && (best == -1 || visits[y] > visits[best]))
+				best = y;
+		}
+		return best;
+	}
+	
+	private ForkJoinPool pool(int threads){
+		if(pool == null || pool.getParallelism() != threads){
+			if(pool != null)
+				pool.shutdown();
+			pool = new ForkJoinPool(threads);
+		}
+		return pool;
+	}
+	
+	//Playouts run by the last decide, over all threads.
+	public long getPlayouts(){
+		return lastPlayouts;
+	}
+	
+	/*
+	 * One search tree. Node 0 is the root; node n's child for column y is
+	 * children[n * 9 + y], 0 while unexpanded. rewards[n] is the total
+	 * result for the player who made the move into n: 1 for a win, 1/2 for
+	 * a draw.
+	 */
+	private final class Tree {
+		final SplittableRandom random;
+		int[] children = new int[0];
+		int[] visits = new int[0];
+		double[] rewards = new double[0];
+		boolean[] moverIsX = new boolean[0];
+		int size;
+		
+		//Path of nodes from the root, for crediting playouts
+		final int[] path = new int[CELLS + 1];
+		final int[] candidates = new int[COLUMNS];
+		final int[] drops = new int[COLUMNS];
+		
+		Tree(SplittableRandom random){
+			this.random = random;
+		}
+		
+		void search(Node root, int budget, long deadline){
+			Board board = new Board(root);
+			reset(budget == Integer.MAX_VALUE ? 1 << 16 : budget + 1);
+			moverIsX[0] = !board.isXToMove();
+			for(int i = 0; i < budget; i++){
+				if(deadline != 0 && (i & (TIME_CHECK_INTERVAL - 1)) == 0 
+						&& System.nanoTime() >= deadline)
+					break;
+				iterate(board);
+			}
+		}
+		
+		private void reset(int capacity){
+			if(visits.length < capacity){
+				children = new int[capacity * COLUMNS];
+				visits = new int[capacity];
+				rewards = new double[capacity];
+				moverIsX = new boolean[capacity];
+			} else {
+				Arrays.fill(children, 0, size * COLUMNS, 0);
+				Arrays.fill(visits, 0, size, 0);
+				Arrays.fill(rewards, 0, size, 0);
+			}
+			size = 1;
+		}
+		
+		//Selection, expansion, playout and backup for one playout.
+		private void iterate(Board board){
+			int node = 0;
+			int depth = 0;
+			path[0] = 0;
+			while(!board.isFull()){
+				int untried = pickUntried(board, node);
+				if(untried >= 0){
+					node = expand(node, untried, board.isXToMove());
+					board.play(untried);
+					path[++depth] = node;
+					break;
+				}
+				int y = selectChild(board, node);
+				node = children[node * COLUMNS + y];
+				board.play(y);
+				path[++depth] = node;
+			}
+			
+			int played = playout(board);
+			int margin = board.getOScore() - board.getXScore();
+			for(int i = 0; i < played + depth; i++)
+				board.undo();
+			
+			for(int i = 0; i <= depth; i++){
+				int n = path[i];
+				visits[n]++;
+				if(margin == 0)
+					rewards[n] += 0.5;
+				else if((margin < 0) == moverIsX[n])
+					rewards[n] += 1;
+			}
+		}
+		
+		//A random playable column with no child yet, or -1.
+		private int pickUntried(Board board, int node){
+			int count = 0;
+			for(int y = 0; y < COLUMNS; y++){
+				if(board.canPlay(y) && children[node * COLUMNS + y] == 0)
+					candidates[count++] = y;
+			}
+			return count == 0 ? -1 : candidates[random.nextInt(count)];
+		}
+		
+		private int expand(int parent, int y, boolean xMoves){
+			if(size == visits.length)
+				grow();
+			int child = size++;
+			children[parent * COLUMNS + y] = child;
+			moverIsX[child] = xMoves;
+			return child;
+		}
+		
+		private void grow(){
+			int capacity = visits.length * 2;
+			children = Arrays.copyOf(children, capacity * COLUMNS);
+			visits = Arrays.copyOf(visits, capacity);
+			rewards = Arrays.copyOf(rewards, capacity);
+			moverIsX = Arrays.copyOf(moverIsX, capacity);
+		}
+		
+		//UCT: the child with the best mean reward plus exploration bonus.
+		private int selectChild(Board board, int node){
+			double logVisits = Math.log(visits[node]);
+			int best = -1;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for(int y = 0; y < COLUMNS; y++){
+				int child = children[node * COLUMNS + y];
+				if(child == 0 || !board.canPlay(y))
+					continue;
+				double score = rewards[child] / visits[child] 
+						+ EXPLORATION * Math.sqrt(logVisits / visits[child]);
+				if(score > bestScore){
+					bestScore = score;
+					best = y;
+				}
+			}
+			return best;
+		}
+		
+		//Plays to a full board, returns the number of moves played.
+		private int playout(Board board){
+			int played = 0;
+			while(!board.isFull()){
+				board.play(greedyPlayouts ? greedyColumn(board) : randomColumn(board));
+				played++;
+			}
+			return played;
+		}
+		
+		private int randomColumn(Board board){
+			int count = 0;
+			for(int y = 0; y < COLUMNS; y++){
+				if(board.canPlay(y))
+					candidates[count++] = y;
+			}
+			return candidates[random.nextInt(count)];
+		}
+		
+		private int greedyColumn(Board board){
+			board.scoreAll(drops);
+			int count = 0;
+			int bestPoints = -1;
+			for(int y = 0; y < COLUMNS; y++){
+				int points = drops[y];
+				if(points < 0)
+					continue;
+				if(points > bestPoints){
+					bestPoints = points;
+					count = 0;
+				}
+				if(points == bestPoints)
+					candidates[count++] = y;
+			}
+			return candidates[random.nextInt(count)];
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package simacogo.play;
+
+import simacogo.framework.Board;
+import simacogo.framework.BoardGeometry;
+
+/*
+ * Orders the columns tried at each node of the make/unmake alpha-beta
+ * search. Each heuristic can be turned on by itself; a column's sort key
+ * combines them in this priority:
+ *
+ *   1. the best column stored in the transposition table for the position
+ *   2. the points the drop scores straight away
+ *   3. the two killer columns, which last caused a cutoff at the same ply
+ *   4. the history score, raised by depth squared on every cutoff and
+ *      halved for every cell once one passes the limit, so it never
+ *      overflows into the killer bits however long the ordering is kept
+ *
+ * Killers and history are learned during a search, so every thread needs
+ * its own MoveOrdering. Sorting uses per-ply buffers and allocates nothing.
+ */
+public class MoveOrdering {
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
+	
+	private static final int TABLE_MOVE_KEY = 1 << 30;
+	private static final int POINTS_SHIFT = 20;
+	private static final int FIRST_KILLER_KEY = 2 << 18;
+	private static final int SECOND_KILLER_KEY = 1 << 18;
+	private static final int HISTORY_LIMIT = (1 << 18) - 1;
+	
+	private final boolean tableMove;
+	private final boolean pointsFirst;
+	private final boolean killerMoves;
+	private final boolean history;
+	
+	//Killer columns by ply (cells filled), two slots each, -1 when empty
+	private final int[][] killers = new int[CELLS + 1][2];
+	//History scores by side to move (0 for O, 1 for X) and cell
+	private final int[][] historyScores = new int[2][CELLS];
+	//Move, key and drop points buffers by ply
+	private final int[][] moves = new int[CELLS + 1][COLUMNS];
+	private final int[][] keys = new int[CELLS + 1][COLUMNS];
+	private final int[][] dropPoints = new int[CELLS + 1][COLUMNS];
+	
+	public MoveOrdering(boolean tableMove, boolean pointsFirst, 
+						boolean killerMoves, boolean history){
+		this.tableMove = tableMove;
+		this.pointsFirst = pointsFirst;
+		this.killerMoves = killerMoves;
+		this.history = history;
+		for(int[] slots : killers){
+			slots[0] = -1;
+			slots[1] = -1;
+		}
+	}
+	
+	/*
+	 * Ordering for the heuristics turned on in options, or null when they are
+	 * all off.
+	 */
+	public static MoveOrdering create(SearchOptions options){
+		if(!options.isOrderTableMove() && !options.isOrderByPoints() 
+				&& !options.isKillerMoves() && !options.isHistoryHeuristic())
+			return null;
+		return new MoveOrdering(options.isOrderTableMove(), options.isOrderByPoints(),
+								options.isKillerMoves(), options.isHistoryHeuristic());
+	}
+	
+	/*
+	 * Fills the buffer for this ply with the playable columns, best first,
+	 * and returns it. Ties keep column order, and unused slots at the end are
+	 * -1. bestColumn is the table's move, or -1.
+	 */
+	public int[] order(Board board, int bestColumn){
+		int ply = board.getFilledCount();
+		int[] columns = moves[ply];
+		int[] sortKeys = keys[ply];
+		int side = board.isXToMove() ? 1 : 0;
+		int[] points = dropPoints[ply];
+		if(pointsFirst)
+			board.scoreAll(points);
+		int count = 0;
+		for(int y = 0; y < COLUMNS; y++){
+			if(!board.canPlay(y))
+				continue;
+			int key = 0;
+			if(tableMove && y == bestColumn)
+				key += TABLE_MOVE_KEY;
+			if(pointsFirst)
+				key += points[y] << POINTS_SHIFT;
+			if(killerMoves){
+				if(killers[ply][0] == y)
+					key += FIRST_KILLER_KEY;
+				else if(killers[ply][1] == y)
+					key += SECOND_KILLER_KEY;
+			}
+			if(history)
+				key += historyScores[side][cell(board, y)];
+			
+			//insertion sort, highest key first
+			int i = count++;
+			while(i > 0 && sortKeys[i - 1] < key){
+				sortKeys[i] = sortKeys[i - 1];
+				columns[i] = columns[i - 1];
+				i--;
+			}
+			sortKeys[i] = key;
+			columns[i] = y;
+		}
+		for(int i = count; i < COLUMNS; i++)
+			columns[i] = -1;
+		return columns;
+	}
+	
+	/*
+	 * Records that dropping in column y caused a cutoff at a node searched to
+	 * the given depth. Call with the move undone.
+	 */
+	public void recordCutoff(Board board, int y, int depth){
+		int ply = board.getFilledCount();
+		if(killerMoves && killers[ply][0] != y){
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = y;
+		}
+		if(history){
+			int side = board.isXToMove() ? 1 : 0;
+			int cell = cell(board, y);
+			historyScores[side][cell] += depth * depth;
+			if(historyScores[side][cell] > HISTORY_LIMIT)
+				ageHistory();
+		}
+	}
+	
+	//Halves every history score, keeping their order.
+	private void ageHistory(){
+		for(int[] scores : historyScores){
+			for(int cell = 0; cell < CELLS; cell++)
+				scores[cell] >>= 1;
+		}
+	}
+	
+	//Cell the next drop into column y lands on.
+	private static int cell(Board board, int y){
+		return y * ROWS + ROWS - 1 - board.getHeight(y);
+	}
+}
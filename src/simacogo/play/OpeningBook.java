@@ -0,0 +1,174 @@
+package simacogo.play;
+
+import simacogo.framework.Node;
+import simacogo.framework.Zobrist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/*
+ * Read-only opening book, memory-mapped from a file written by
+ * OpeningBookBuilder. The file is a small header followed by fixed-size
+ * entries sorted by position hash, so opening it only maps the file and
+ * reads the header, and a lookup is a binary search over the mapping.
+ *
+ * File layout, big-endian:
+ *   int magic, int version, long key fingerprint, int entry count
+ *   entries of: long position hash, byte column, byte depth, short value
+ *
+ * The fingerprint is a Zobrist key, so a book built with different keys is
+ * rejected instead of returning moves for the wrong positions.
+ *
+ * Positions are keyed by Node.getCanonicalHash, so a position and its mirror
+ * image share an entry, and the column is in the orientation of the
+ * position whose hash is the key. Callers flip it when Node.isMirrored.
+ */
+public class OpeningBook {
+
+	static final int MAGIC = 0x534D4342;	//"SMCB"
+	static final int VERSION = 2;
+	static final int HEADER_BYTES = 20;
+	static final int ENTRY_BYTES = 12;
+	
+	private final MappedByteBuffer buffer;
+	private final int entries;
+	
+	private OpeningBook(MappedByteBuffer buffer){
+		this.buffer = buffer;
+		this.entries = buffer.getInt(16);
+	}
+	
+	/*
+	 * Maps a book file. Throws IOException when the file is not a book or
+	 * was built with different Zobrist keys.
+	 */
+	public static OpeningBook open(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC 
+					|| buffer.getInt(4) != VERSION)
+				throw new IOException(path + " is not an opening book");
+			if(buffer.getLong(8) != fingerprint())
+				throw new IOException(path + " was built with different Zobrist keys");
+			if(buffer.capacity() < HEADER_BYTES + (long) buffer.getInt(16) * ENTRY_BYTES)
+				throw new IOException(path + " is truncated");
+			return new OpeningBook(buffer);
+		}
+	}
+	
+	/*
+	 * Book column for the position with this canonical hash, or -1 when the
+	 * position is not in the book. Only absolute reads are used, so lookups from
+	 * several threads are safe.
+	 */
+	public int lookup(long hash){
+		int entry = find(hash);
+		return entry < 0 ? -1 : buffer.get(offset(entry) + 8);
+	}
+	
+	//Searched depth behind the book move, or -1 when not in the book.
+	public int getDepth(long hash){
+		int entry = find(hash);
+		return entry < 0 ? -1 : buffer.get(offset(entry) + 9);
+	}
+	
+	//Minimax value of the book move, or 0 when not in the book.
+	public int getValue(long hash){
+		int entry = find(hash);
+		return entry < 0 ? 0 : buffer.getShort(offset(entry) + 10);
+	}
+	
+	public int size(){
+		return entries;
+	}
+	
+	//Binary search for the entry with this hash, -1 when missing.
+	private int find(long hash){
+		int low = 0, high = entries - 1;
+		while(low <= high){
+			int mid = (low + high) >>> 1;
+			long key = buffer.getLong(offset(mid));
+			if(key < hash)
+				low = mid + 1;
+			else if(key > hash)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+	
+	private static int offset(int entry){
+		return HEADER_BYTES + entry * ENTRY_BYTES;
+	}
+	
+	//Identifies the Zobrist keys a book was built with.
+	static long fingerprint(){
+		return Zobrist.key(true, 0, 0) ^ Zobrist.key(false, 8, 8) ^ Zobrist.SIDE;
+	}
+	
+	/*
+	 * Writes entries, keyed by position hash, as a book file. Each value is
+	 * {column, depth, minimax value}.
+	 */
+	static void write(Path path, Map<Long, int[]> entries) throws IOException {
+		Long[] keys = entries.keySet().toArray(new Long[0]);
+		Arrays.sort(keys);
+		ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + keys.length * ENTRY_BYTES);
+		out.putInt(MAGIC).putInt(VERSION).putLong(fingerprint()).putInt(keys.length);
+		for(Long key : keys){
+			int[] entry = entries.get(key);
+			out.putLong(key).put((byte) entry[0]).put((byte) entry[1]).putShort((short) entry[2]);
+		}
+		out.flip();
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, 
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			while(out.hasRemaining())
+				channel.write(out);
+		}
+	}
+	
+	/*
+	 * Strictly for unit testing. Builds a small book, maps it back and checks
+	 * every entry, a miss, and that Minimax answers book positions without
+	 * searching.
+	 */
+	public static void main(String[] args) throws IOException {
+		Map<Long, int[]> entries = new OpeningBookBuilder(4, 6).build();
+		Path path = Files.createTempFile("simacogo", ".book");
+		try {
+			write(path, entries);
+			OpeningBook book = open(path);
+			int mismatches = 0;
+			for(Map.Entry<Long, int[]> entry : entries.entrySet()){
+				long hash = entry.getKey();
+				if(book.lookup(hash) != entry.getValue()[0] || book.getDepth(hash) != entry.getValue()[1]
+						|| book.getValue(hash) != entry.getValue()[2])
+					mismatches++;
+			}
+			System.out.println(book.size() + " entries, " + mismatches + " mismatches");
+			
+			long missing = 12345;
+			while(entries.containsKey(missing))
+				missing++;
+			System.out.println("Missing position returns " + book.lookup(missing));
+			
+			Node root = new Node();
+			SearchOptions options = new SearchOptions(6, true, false);
+			options.setOpeningBook(book);
+			Minimax minimax = new Minimax();
+			int column = minimax.decide(root, options);
+			System.out.println("Book move " + column + " (expected " + book.lookup(root.getCanonicalHash()) 
+					+ "), nodes searched " + minimax.getNodeCount());
+		} finally {
+			Files.delete(path);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package simacogo.play;
+
+import simacogo.framework.Action;
+import simacogo.framework.BoardGeometry;
+import simacogo.framework.Node;
+import simacogo.framework.TerminalTest;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Offline tool that writes an opening book. Starting from the empty board
+ * with either player to move, it follows every X move and, at each
+ * position where O (the computer) is to move, runs a deep search and
+ * follows only the chosen column. Every O position reached within the
+ * book's ply limit gets an entry, shared with its mirror image.
+ *
+ * Usage: OpeningBookBuilder <output file> [book plies] [search depth]
+ */
+public class OpeningBookBuilder {
+
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+
+	private final Minimax minimax = new Minimax();
+	private final SearchOptions options;
+	private final int bookPlies;
+	private final Map<Long, int[]> entries = new HashMap<Long, int[]>();
+	
+	public OpeningBookBuilder(int bookPlies, int searchDepth){
+		this.bookPlies = bookPlies;
+		this.options = new SearchOptions(searchDepth, true, false);
+		options.setTranspositionTable(new TranspositionTable(22, 
+				TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+		options.setMoveOrdering(true);
+		options.setPrincipalVariation(true);
+		options.setSymmetry(true);
+	}
+	
+	/*
+	 * Expands a position. O to move: search it, record the answer and
+	 * follow it. X to move: follow every column.
+	 */
+	private void expand(Node node, int ply){
+		if(ply >= bookPlies || TerminalTest.isTerminalStateFast(node))
+			return;
+		boolean oToMove = node.getAction().playerIsX;
+		if(oToMove){
+			//keyed by canonical hash, with the column in the canonical orientation
+			long key = node.getCanonicalHash();
+			boolean mirrored = node.isMirrored();
+			if(!entries.containsKey(key)){
+				SearchResult result = minimax.decide(node, options, 0);
+				int column = mirrored ? COLUMNS - 1 - result.getColumn() : result.getColumn();
+				entries.put(key, new int[]{column, result.getDepth(), result.getValue()});
+			}
+			int column = entries.get(key)[0];
+			if(mirrored)
+				column = COLUMNS - 1 - column;
+			for(Node child : node.getChildren()){
+				if(child.getAction().getyCoord() == column)
+					expand(child, ply + 1);
+			}
+		} else {
+			List<Node> children = node.getChildren();
+			for(Node child : children)
+				expand(child, ply + 1);
+		}
+	}
+	
+	/*
+	 * Expands both openings and returns the book entries, keyed by position
+	 * hash, as {column, depth, value}.
+	 */
+	Map<Long, int[]> build(){
+		//O to move first, as from new Node()
+		Node oFirst = new Node();
+		expand(oFirst, 0);
+		
+		//X to move first, as in Simacogo where the human opens
+		Node xFirst = new Node(0, 0, oFirst.getState(), new Action(0, 0, 'O'));
+		expand(xFirst, 0);
+		return entries;
+	}
+	
+	public static void main(String[] args) throws IOException {
+		if(args.length < 1){
+			System.out.println("Usage: OpeningBookBuilder <output file> [book plies] [search depth]");
+			return;
+		}
+		int bookPlies = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+		int searchDepth = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		OpeningBookBuilder builder = new OpeningBookBuilder(bookPlies, searchDepth);
+		long start = System.currentTimeMillis();
+		builder.build();
+		OpeningBook.write(Paths.get(args[0]), builder.entries);
+		System.out.println("Wrote " + builder.entries.size() + " positions to " + args[0] 
+				+ " in " + (System.currentTimeMillis() - start) + " ms");
+	}
+}
@@ -0,0 +1,257 @@
+package simacogo.play;
+
+import simacogo.framework.Action;
+import simacogo.framework.BoardGeometry;
+import simacogo.framework.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Searches on the human's time. While the human picks a column, a
+ * background thread searches the position after the human's likely
+ * replies with the game's own options, predicted reply first. The
+ * prediction is the best column the transposition table holds for the
+ * human's position, left there by the search that chose the last move.
+ *
+ * When the human moves, take() returns the finished result for that
+ * column at once, waits for it if it is being searched, or cancels the
+ * rest and returns null. A null still leaves the shared table warm for
+ * the search that follows.
+ */
+public class Ponderer {
+
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+
+	private final SearchOptions options;
+	private final boolean predictedOnly;
+	private final Minimax minimax = new Minimax();
+	private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "simacogo-ponder");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private final ConcurrentHashMap<Integer, SearchResult> results = 
+			new ConcurrentHashMap<Integer, SearchResult>();
+	private Future<?> task;
+	
+	//wanted when the human's column was not being searched: run no more replies
+	private static final int ABANDONED = -2;
+	
+	//Guarded by this: the human's column once known, the column being searched
+	private int wanted = -1;
+	private int searching = -1;
+	private boolean aborted;
+	private boolean closed;
+	
+	/*
+	 * Ponders with the options the game decides with; give them a
+	 * transposition table to share. With predictedOnly, only the predicted
+	 * reply is searched.
+	 */
+	public Ponderer(SearchOptions options, boolean predictedOnly){
+		this.options = options;
+		this.predictedOnly = predictedOnly;
+	}
+	
+	/*
+	 * Starts pondering the position where the human (X) is to move. Any
+	 * earlier pondering must have been taken first.
+	 */
+	public synchronized void start(Node humanToMove){
+		//the game's first position is an empty board labelled with X's action
+		Node node = humanToMove;
+		if(node.getAction().playerIsX)
+			node = new Node(node.getXScore(), node.getOScore(), node.getState(), 
+							new Action(0, 0, 'O'));
+		results.clear();
+		wanted = -1;
+		searching = -1;
+		aborted = false;
+		List<Node> replies = replies(node);
+		task = worker.submit(() -> ponder(replies));
+	}
+	
+	//The human's replies to search, predicted one first.
+	private List<Node> replies(Node node){
+		int predicted = -1;
+		TranspositionTable table = options.getTranspositionTable();
+		if(table != null){
+			boolean mirrored = options.isSymmetry() && node.isMirrored();
+			long entry = table.probe(options.isSymmetry() ? node.getCanonicalHash() : node.getHash());
+			if(entry != 0)
+				predicted = TranspositionTable.getBestColumn(entry);
+			if(predicted >= 0 && mirrored)
+				predicted = COLUMNS - 1 - predicted;
+		}
+		List<Node> replies = new ArrayList<Node>();
+		for(Node child : node.getChildren()){
+			if(child.getAction().getyCoord() == predicted)
+				replies.add(0, child);
+			else if(!predictedOnly || predicted == -1)
+				replies.add(child);
+		}
+		return replies;
+	}
+	
+	private void ponder(List<Node> replies){
+		for(Node reply : replies){
+			int y = reply.getAction().getyCoord();
+			synchronized(this){
+				if(closed)
+					return;
+				if(wanted != -1 && wanted != y)
+					continue;
+				//from here take() can stop this search, and nothing will undo that
+				searching = y;
+				minimax.clearStop();
+			}
+			SearchResult result = minimax.decide(reply, options, 0);
+			synchronized(this){
+				searching = -1;
+				if(!aborted)
+					results.put(y, result);
+				aborted = false;
+				if(wanted == y)
+					return;
+			}
+		}
+	}
+	
+	/*
+	 * The human played column y. Returns the pondered result for it, or
+	 * null when it was not searched; all other pondering is cancelled
+	 * either way, and the background thread is idle on return. Only a
+	 * search of y already running is waited for; if y is still queued it
+	 * is dropped with the rest, so a non-null result always started on the
+	 * human's time.
+	 */
+	public SearchResult take(int y){
+		Future<?> pondering;
+		synchronized(this){
+			if(task == null)
+				return null;
+			if(searching == y)
+				wanted = y;
+			else {
+				wanted = ABANDONED;
+				if(searching != -1){
+					aborted = true;
+					minimax.stop();
+				}
+			}
+			pondering = task;
+			task = null;
+		}
+		try {
+			pondering.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			minimax.stop();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("pondering failed", e.getCause());
+		}
+		return results.get(y);
+	}
+	
+	//Nodes searched by the last pondered search.
+	public long getNodeCount(){
+		return minimax.getNodeCount();
+	}
+	
+	public void shutdown(){
+		synchronized(this){
+			closed = true;
+			minimax.stop();
+		}
+		worker.shutdownNow();
+	}
+	
+	/*
+	 * Strictly for unit testing. Ponders a position, lets the pondering
+	 * finish, and checks each reply's pondered value against a fresh search
+	 * and how long take waited.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int depth = 7;
+		Node position = new Node(0, 0, new Node().getState(), new Action(0, 0, 'O'));
+		for(int y : new int[]{4, 4, 3, 5}){
+			for(Node child : position.getChildren()){
+				if(child.getAction().getyCoord() == y){
+					position = child;
+					break;
+				}
+			}
+		}
+		int mismatches = 0;
+		for(int y = 0; y < 9; y++){
+			SearchOptions options = new SearchOptions(depth, true, false);
+			options.setMakeUnmake(true);
+			options.setTranspositionTable(new TranspositionTable());
+			options.setMoveOrdering(true);
+			Ponderer ponderer = new Ponderer(options, false);
+			ponderer.start(position);
+			Thread.sleep(200);
+			long start = System.nanoTime();
+			SearchResult pondered = ponderer.take(y);
+			long waited = System.nanoTime() - start;
+			ponderer.shutdown();
+			
+			Node reply = null;
+			for(Node child : position.getChildren()){
+				if(child.getAction().getyCoord() == y)
+					reply = child;
+			}
+			SearchOptions fresh = new SearchOptions(depth, true, false);
+			fresh.setMakeUnmake(true);
+			SearchResult expected = new Minimax().decide(reply, fresh, 0);
+			boolean same = pondered != null && pondered.getValue() == expected.getValue();
+			if(!same)
+				mismatches++;
+			System.out.println("Reply " + (y + 1) + ": pondered " 
+					+ (pondered == null ? "-" : pondered.getValue()) + ", searched " 
+					+ expected.getValue() + ", take waited " 
+					+ String.format("%.2f", waited / 1e6) + " ms");
+		}
+		
+		//taking a reply still queued must not search it on the engine's time
+		SearchOptions slow = new SearchOptions(10, true, false);
+		slow.setMakeUnmake(true);
+		slow.setTranspositionTable(new TranspositionTable());
+		Ponderer queued = new Ponderer(slow, false);
+		queued.start(position);
+		//an empty table predicts nothing, so the replies go in column order
+		int last = COLUMNS - 1;
+		long takeStart = System.nanoTime();
+		SearchResult skipped = queued.take(last);
+		long takeWaited = System.nanoTime() - takeStart;
+		queued.shutdown();
+		if(skipped != null)
+			mismatches++;
+		System.out.println("Took queued reply " + (last + 1) + ": " 
+				+ (skipped == null ? "null" : "searched") + " after " 
+				+ String.format("%.2f", takeWaited / 1e6) + " ms");
+		
+		//a stop that lands before the search starts must still stop it
+		Minimax stopped = new Minimax();
+		SearchOptions deep = new SearchOptions(20, true, false);
+		deep.setMakeUnmake(true);
+		stopped.stop();
+		SearchResult early = stopped.decide(position, deep, 0);
+		if(early.getDepth() >= deep.getDepth())
+			mismatches++;
+		stopped.clearStop();
+		SearchResult shallow = stopped.decide(position, new SearchOptions(3, true, false), 0);
+		if(shallow.getDepth() != 3)
+			mismatches++;
+		System.out.println("Stopped before starting: depth " + early.getDepth() 
+				+ ", after clearStop: depth " + shallow.getDepth());
+		System.out.println(mismatches + " mismatches");
+	}
+}
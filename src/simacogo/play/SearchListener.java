@@ -0,0 +1,16 @@
+package simacogo.play;
+
+/*
+ * Receives a Minimax's statistics as it searches. Called on the searching
+ * thread with the live statistics object, so implementations should be
+ * quick and copy anything they keep.
+ */
+public interface SearchListener {
+
+	//Called after each completed iteration of an iterative deepening search.
+	default void iterationFinished(int depth, SearchStatistics statistics){
+	}
+	
+	//Called when a decide call has its answer.
+	void searchFinished(SearchStatistics statistics);
+}
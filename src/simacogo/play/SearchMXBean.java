@@ -0,0 +1,27 @@
+package simacogo.play;
+
+/*
+ * JMX view of the most recent search, published by JmxSearchListener.
+ */
+public interface SearchMXBean {
+
+	long getSearches();
+	
+	long getLastNodes();
+	
+	long getLastLeafEvaluations();
+	
+	long getLastCutoffs();
+	
+	double getLastFirstChildCutoffRate();
+	
+	double getLastEffectiveBranchingFactor();
+	
+	int getLastDepth();
+	
+	long[] getLastNodesByPly();
+	
+	long[] getLastCutoffsByChild();
+	
+	long[] getLastIterationMillis();
+}
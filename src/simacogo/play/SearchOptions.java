@@ -0,0 +1,246 @@
+package simacogo.play;
+
+/*
+ * Settings for a single Minimax.decide call. The three-argument constructor
+ * matches the original decide parameters; everything else defaults to off.
+ */
+public class SearchOptions {
+
+	private int depth;
+	private boolean ABPrune;
+	private boolean opponentWantsToLose;
+	private boolean makeUnmake;
+	private TranspositionTable transpositionTable;
+	private int threads = 1;
+	private boolean lazySmp;
+	private boolean orderTableMove;
+	private boolean orderByPoints;
+	private boolean killerMoves;
+	private boolean historyHeuristic;
+	private boolean principalVariation;
+	private int aspirationWindow;
+	private int aspirationWidening = 4;
+	private OpeningBook openingBook;
+	private int endgameThreshold;
+	private boolean symmetry;
+	
+	public SearchOptions(int depth, boolean ABPrune, boolean opponentWantsToLose){
+		this.depth = depth;
+		this.ABPrune = ABPrune;
+		this.opponentWantsToLose = opponentWantsToLose;
+	}
+	
+	//BEGIN getters and setters
+	public int getDepth() {
+		return depth;
+	}
+
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	public boolean isABPrune() {
+		return ABPrune;
+	}
+
+	public void setABPrune(boolean ABPrune) {
+		this.ABPrune = ABPrune;
+	}
+
+	public boolean isOpponentWantsToLose() {
+		return opponentWantsToLose;
+	}
+
+	public void setOpponentWantsToLose(boolean opponentWantsToLose) {
+		this.opponentWantsToLose = opponentWantsToLose;
+	}
+
+	/*
+	 * Search by playing and undoing moves on one Board instead of building
+	 * child Nodes.
+	 */
+	public boolean isMakeUnmake() {
+		return makeUnmake;
+	}
+
+	public void setMakeUnmake(boolean makeUnmake) {
+		this.makeUnmake = makeUnmake;
+	}
+	/*
+	 * Table consulted by alpha-beta, in both the Node and Board searches.
+	 * Null turns it off. The same table can be passed to every decide call
+	 * so entries carry over between moves, and it is safe to share between
+	 * threads.
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return transpositionTable;
+	}
+
+	public void setTranspositionTable(TranspositionTable transpositionTable) {
+		this.transpositionTable = transpositionTable;
+	}
+	/*
+	 * Number of threads searching the root columns. Above one, decide splits
+	 * the root over a ForkJoinPool of this size.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/*
+	 * Use the threads for Lazy SMP instead of a root split: every thread
+	 * deepens from the root and they share the transposition table. Needs
+	 * alpha-beta and a table, otherwise the search runs on one thread.
+	 */
+	public boolean isLazySmp() {
+		return lazySmp;
+	}
+
+	public void setLazySmp(boolean lazySmp) {
+		this.lazySmp = lazySmp;
+	}
+	/*
+	 * Move ordering switches for the make/unmake alpha-beta, see
+	 * MoveOrdering. Each one can be turned on by itself.
+	 */
+	public boolean isOrderTableMove() {
+		return orderTableMove;
+	}
+
+	public void setOrderTableMove(boolean orderTableMove) {
+		this.orderTableMove = orderTableMove;
+	}
+
+	public boolean isOrderByPoints() {
+		return orderByPoints;
+	}
+
+	public void setOrderByPoints(boolean orderByPoints) {
+		this.orderByPoints = orderByPoints;
+	}
+
+	public boolean isKillerMoves() {
+		return killerMoves;
+	}
+
+	public void setKillerMoves(boolean killerMoves) {
+		this.killerMoves = killerMoves;
+	}
+
+	public boolean isHistoryHeuristic() {
+		return historyHeuristic;
+	}
+
+	public void setHistoryHeuristic(boolean historyHeuristic) {
+		this.historyHeuristic = historyHeuristic;
+	}
+	
+	/*
+	 * Search below the root with negamax Principal Variation Search instead
+	 * of the min/max abPrune. Only applies to the Board search.
+	 */
+	public boolean isPrincipalVariation() {
+		return principalVariation;
+	}
+
+	public void setPrincipalVariation(boolean principalVariation) {
+		this.principalVariation = principalVariation;
+	}
+	
+	/*
+	 * Half-width of the aspiration window the timed decide opens around the
+	 * previous iteration's value, 0 for no window. A search that fails high
+	 * or low moves that edge out by the widening factor (at least 2) and
+	 * searches again.
+	 * Needs alpha-beta and is skipped when the opponent wants to lose.
+	 */
+	public int getAspirationWindow() {
+		return aspirationWindow;
+	}
+
+	public void setAspirationWindow(int aspirationWindow) {
+		this.aspirationWindow = aspirationWindow;
+	}
+
+	public int getAspirationWidening() {
+		return aspirationWidening;
+	}
+
+	public void setAspirationWidening(int aspirationWidening) {
+		this.aspirationWidening = aspirationWidening;
+	}
+	
+	/*
+	 * Opening book consulted before searching. A position found in it is
+	 * answered with the book column and no search; any other position is
+	 * searched as usual. Skipped when the opponent wants to lose.
+	 */
+	public OpeningBook getOpeningBook() {
+		return openingBook;
+	}
+
+	public void setOpeningBook(OpeningBook openingBook) {
+		this.openingBook = openingBook;
+	}
+	
+	/*
+	 * Number of empty cells at or below which decide ignores the depth and
+	 * solves the position exactly, 0 to never solve.
+	 */
+	public int getEndgameThreshold() {
+		return endgameThreshold;
+	}
+
+	public void setEndgameThreshold(int endgameThreshold) {
+		this.endgameThreshold = endgameThreshold;
+	}
+	
+	/*
+	 * Mirror symmetry for the make/unmake search: the table is keyed by the
+	 * hash shared by a position and its left-right mirror image, and a root
+	 * that is its own mirror image only searches columns 0-4.
+	 */
+	public boolean isSymmetry() {
+		return symmetry;
+	}
+
+	public void setSymmetry(boolean symmetry) {
+		this.symmetry = symmetry;
+	}
+	
+	//Turns every move ordering heuristic on or off at once.
+	public void setMoveOrdering(boolean on) {
+		this.orderTableMove = on;
+		this.orderByPoints = on;
+		this.killerMoves = on;
+		this.historyHeuristic = on;
+	}
+	//END getters and setters
+	
+	/*
+	 * A copy of these options that shares their book and table. Set a new
+	 * table on the copy to search it apart from the original.
+	 */
+	public SearchOptions copy(){
+		SearchOptions copy = new SearchOptions(depth, ABPrune, opponentWantsToLose);
+		copy.makeUnmake = makeUnmake;
+		copy.transpositionTable = transpositionTable;
+		copy.threads = threads;
+		copy.lazySmp = lazySmp;
+		copy.orderTableMove = orderTableMove;
+		copy.orderByPoints = orderByPoints;
+		copy.killerMoves = killerMoves;
+		copy.historyHeuristic = historyHeuristic;
+		copy.principalVariation = principalVariation;
+		copy.aspirationWindow = aspirationWindow;
+		copy.aspirationWidening = aspirationWidening;
+		copy.openingBook = openingBook;
+		copy.endgameThreshold = endgameThreshold;
+		copy.symmetry = symmetry;
+		return copy;
+	}
+}
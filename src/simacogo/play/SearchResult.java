@@ -0,0 +1,45 @@
+package simacogo.play;
+
+/*
+ * Outcome of a timed Minimax decision: the column to play, its minimax
+ * value (O score minus X score), the deepest ply that finished before the
+ * deadline, and how many positions were visited along the way.
+ */
+public class SearchResult {
+
+	private final int column;
+	private final int value;
+	private final int depth;
+	private final long nodeCount;
+	
+	public SearchResult(int column, int value, int depth, long nodeCount){
+		this.column = column;
+		this.value = value;
+		this.depth = depth;
+		this.nodeCount = nodeCount;
+	}
+	
+	//BEGIN getters
+	public int getColumn() {
+		return column;
+	}
+
+	public int getValue() {
+		return value;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public long getNodeCount() {
+		return nodeCount;
+	}
+	//END getters
+	
+	@Override
+	public String toString(){
+		return "column: " + column + ", value: " + value + ", depth: " + depth 
+				+ ", nodes: " + nodeCount;
+	}
+}
@@ -0,0 +1,183 @@
+package simacogo.play;
+
+import simacogo.framework.BoardGeometry;
+
+import java.util.Arrays;
+
+/*
+ * Counters filled in by Minimax while it searches: positions visited at
+ * each ply below the root, leaf evaluations, beta cutoffs and the index of
+ * the child (in the order tried) that caused each one, and the time and
+ * node count of each iteration. Everything is a primitive counter, so the
+ * statistics stay on in every search.
+ *
+ * A Minimax reuses one instance and resets it at the start of each decide,
+ * so copy it in a SearchListener to keep it.
+ */
+public class SearchStatistics {
+
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
+	private static final int MAX_PLY = CELLS + 1;
+	
+	private final long[] nodesByPly = new long[MAX_PLY];
+	private final long[] cutoffsByChild = new long[COLUMNS];
+	private final long[] iterationNanos = new long[MAX_PLY];
+	private final long[] iterationNodes = new long[MAX_PLY];
+	private long leafEvaluations;
+	private long cutoffs;
+	private int deepestPly;
+	private int iterations;
+	
+	//Zeroes every counter.
+	public void reset(){
+		Arrays.fill(nodesByPly, 0);
+		Arrays.fill(cutoffsByChild, 0);
+		Arrays.fill(iterationNanos, 0);
+		Arrays.fill(iterationNodes, 0);
+		leafEvaluations = 0;
+		cutoffs = 0;
+		deepestPly = 0;
+		iterations = 0;
+	}
+	
+	/*
+	 * Recorders, called from the search.
+	 */
+	void node(int ply){
+		//searches started outside decide count from an earlier root
+		if(ply < 0)
+			ply = 0;
+		nodesByPly[ply]++;
+		if(ply > deepestPly)
+			deepestPly = ply;
+	}
+	
+	void leaf(){
+		leafEvaluations++;
+	}
+	
+	void cutoff(int childIndex){
+		cutoffs++;
+		cutoffsByChild[childIndex]++;
+	}
+	
+	void iteration(int depth, long nanos, long nodes){
+		iterationNanos[depth] = nanos;
+		iterationNodes[depth] = nodes;
+		iterations = Math.max(iterations, depth);
+	}
+	
+	/*
+	 * Adds another search's node, leaf and cutoff counts to these, for
+	 * worker threads searching part of the same tree. Iterations are left
+	 * to the thread that owns the search.
+	 */
+	void add(SearchStatistics other){
+		for(int ply = 0; ply < MAX_PLY; ply++)
+			nodesByPly[ply] += other.nodesByPly[ply];
+		for(int i = 0; i < COLUMNS; i++)
+			cutoffsByChild[i] += other.cutoffsByChild[i];
+		leafEvaluations += other.leafEvaluations;
+		cutoffs += other.cutoffs;
+		deepestPly = Math.max(deepestPly, other.deepestPly);
+	}
+	
+	//Independent copy, for keeping the numbers past the next search.
+	public SearchStatistics copy(){
+		SearchStatistics copy = new SearchStatistics();
+		copy.add(this);
+		System.arraycopy(iterationNanos, 0, copy.iterationNanos, 0, MAX_PLY);
+		System.arraycopy(iterationNodes, 0, copy.iterationNodes, 0, MAX_PLY);
+		copy.iterations = iterations;
+		return copy;
+	}
+	
+	/*
+	 * Getters. Plies count down from the root at 0, iterations are numbered
+	 * by their depth from 1.
+	 */
+	public long getNodes(){
+		long total = 0;
+		for(long nodes : nodesByPly)
+			total += nodes;
+		return total;
+	}
+	
+	public long getNodesAtPly(int ply){
+		return nodesByPly[ply];
+	}
+	
+	public long[] getNodesByPly(){
+		return Arrays.copyOf(nodesByPly, deepestPly + 1);
+	}
+	
+	public int getDeepestPly(){
+		return deepestPly;
+	}
+	
+	public long getLeafEvaluations(){
+		return leafEvaluations;
+	}
+	
+	public long getCutoffs(){
+		return cutoffs;
+	}
+	
+	//Cutoffs caused by the child tried first, second, and so on.
+	public long[] getCutoffsByChild(){
+		return cutoffsByChild.clone();
+	}
+	
+	//Share of cutoffs caused by the first child tried, a measure of ordering.
+	public double getFirstChildCutoffRate(){
+		return cutoffs == 0 ? 0.0 : (double) cutoffsByChild[0] / cutoffs;
+	}
+	
+	public int getIterations(){
+		return iterations;
+	}
+	
+	public long getIterationNanos(int depth){
+		return iterationNanos[depth];
+	}
+	
+	public long getIterationNodes(int depth){
+		return iterationNodes[depth];
+	}
+	
+	/*
+	 * Effective branching factor: the b for which b + b^2 + ... + b^d equals
+	 * the nodes visited below the root, where d is the deepest ply reached.
+	 * Found by bisection.
+	 */
+	public double getEffectiveBranchingFactor(){
+		long nodes = getNodes() - nodesByPly[0];
+		if(deepestPly == 0 || nodes <= 0)
+			return 0.0;
+		double low = 1.0, high = COLUMNS;
+		for(int i = 0; i < 50; i++){
+			double b = (low + high) / 2;
+			double sum = 0, power = 1;
+			for(int d = 1; d <= deepestPly; d++){
+				power *= b;
+				sum += power;
+			}
+			if(sum > nodes)
+				high = b;
+			else
+				low = b;
+		}
+		return (low + high) / 2;
+	}
+	
+	//One-line summary for logging.
+	@Override
+	public String toString(){
+		return "nodes: " + getNodes() + ", leaves: " + leafEvaluations 
+				+ ", cutoffs: " + cutoffs 
+				+ String.format(" (%.0f%% on first child)", 100 * getFirstChildCutoffRate())
+				+ ", plies: " + deepestPly
+				+ String.format(", EBF: %.2f", getEffectiveBranchingFactor());
+	}
+}
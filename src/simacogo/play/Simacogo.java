@@ -2,6 +2,8 @@ package simacogo.play;
 
 import simacogo.framework.*;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 /*
@@ -12,14 +14,31 @@ import java.util.Scanner;
 public class Simacogo {
 	
 	private int ply;	
-	private final int BOARD_SIZE = 9;
+	private final int ROWS = BoardGeometry.STANDARD.getRows();
+	private OpeningBook book;
+	private BoardGeometry geometry = BoardGeometry.STANDARD;
 
 	public Simacogo(){}
+	
+	//Plays with an opening book; its moves are used while the game is in it.
+	public Simacogo(OpeningBook book){
+		this.book = book;
+	}
+	
+	//Plays on a board of the given size; the book only applies to 9x9.
+	public Simacogo(OpeningBook book, BoardGeometry geometry){
+		this.book = book;
+		this.geometry = geometry;
+	}
 		
 	/*
 	 * Primary working method.
 	 */
 	public void play() {
+		if(!geometry.equals(BoardGeometry.STANDARD)){
+			playGeometry();
+			return;
+		}
 			
 		//Initialize a node, a Minimax algo, and input scanner.
 		Node initialNode = new Node();
@@ -28,6 +47,7 @@ public class Simacogo {
 		boolean humanMove = true;
 		boolean ABPrune = false;
 		boolean playerWillLose = false;
+		boolean ponder = false;
 		
 		//Grab some basic input from user.
 		System.out.println("Let's play Simacogo!");
@@ -47,11 +67,40 @@ public class Simacogo {
 			playerWillLose = true;
 		}
 		
+		System.out.println("Let the computer think on your time? y / n");
+		answer = scanner.next();
+		if(answer.equals("y") || answer.equals("Y")){
+			ponder = true;
+		}
+		
+		/*
+		 * With alpha beta pruning the computer keeps one engine, and its
+		 * table, for the whole game, so each turn starts from what the last
+		 * one searched. Pondering needs the make/unmake search and a table
+		 * that lasts the whole game as well, so it shares those options.
+		 */
+		SearchOptions gameOptions = null;
+		GameEngine engine = null;
+		if(ABPrune || ponder){
+			gameOptions = new SearchOptions(ply, ABPrune, playerWillLose);
+			gameOptions.setOpeningBook(book);
+			gameOptions.setMakeUnmake(true);
+			if(ABPrune){
+				gameOptions.setTranspositionTable(new TranspositionTable());
+				gameOptions.setMoveOrdering(true);
+				gameOptions.setSymmetry(true);
+				engine = new GameEngine(gameOptions, false);
+			}
+		}
+		Ponderer ponderer = null;
+		if(ponder)
+			ponderer = new Ponderer(gameOptions, false);
+		SearchResult pondered = null;
 		
 		Node current = initialNode;
 		
 		//if the game hasn't reached terminal state...
-		while(!TerminalTest.isTerminalState(current)) {  
+		while(!TerminalTest.isTerminalStateFast(current)) {  
 			
 			Node nextMove;
 			printBoard(current);
@@ -64,9 +113,12 @@ public class Simacogo {
 			 */
 			if(humanMove) {
 				
+				if(ponderer != null)
+					ponderer.start(current);
+				
 				//Prompt human for move
-				System.out.println("It's your move! Choose a slot number (1 - 9)"
-									+ " to drop your X marker in.");
+				System.out.println("It's your move! Choose a slot number (1 - " 
+									+ geometry.getColumns() + ") to drop your X marker in.");
 				String humanMoveChoice = scanner.next();
 				int rawMove = tryParse(humanMoveChoice);
 				
@@ -91,6 +143,8 @@ public class Simacogo {
 					e.printStackTrace();
 				}
 				
+				if(ponderer != null)
+					pondered = ponderer.take(action.getyCoord());
 				humanMove = false;
 			
 				
@@ -98,10 +152,30 @@ public class Simacogo {
 				//Prompt computer for move
 				System.out.println("It's the computer's move! It's thinking...\n");
 				long startTime = System.currentTimeMillis();
-				int x = minimax.decide(current, ply, ABPrune, playerWillLose);
+				int x;
+				boolean fromPonder = pondered != null;
+				if(fromPonder){
+					x = pondered.getColumn();
+				} else if(engine != null){
+					x = engine.decide(current).getColumn();
+				} else if(gameOptions != null){
+					x = minimax.decide(current, gameOptions, 0).getColumn();
+				} else {
+					SearchOptions options = new SearchOptions(ply, ABPrune, playerWillLose);
+					options.setOpeningBook(book);
+					x = minimax.decide(current, options);
+				}
+				pondered = null;
 				System.out.println("The computer chose slot " + (x + 1));
 				long endTime = System.currentTimeMillis();
 				System.out.println("Decision took " + (endTime - startTime) + " ms");
+				if(fromPonder)
+					System.out.println("Answered from pondering on your time");
+				else if(engine != null)
+					System.out.println("Search " + engine.getMinimax().getStatistics()
+							+ "\nReused the table from earlier turns: " + engine.getLastReport());
+				else
+					System.out.println("Search " + minimax.getStatistics());
 				
 				//Convert move into Action and Node, update game state.
 				Action action = tryAction(x, current, false);
@@ -132,6 +206,8 @@ public class Simacogo {
 			System.out.println("O wins!");
 		else
 			System.out.println("It's a tie!");
+		if(ponderer != null)
+			ponderer.shutdown();
 		scanner.close();
 	}
 	
@@ -139,7 +215,7 @@ public class Simacogo {
 	 * Copy the state of the board for creating a new node.
 	 */
 	private char[][] copyState(char[][] state) {
-		char [][] newState = new char[BOARD_SIZE][];
+		char [][] newState = new char[ROWS][];
 		for(int i = 0; i < state.length; i++)
 		    newState[i] = state[i].clone();
 		return newState;
@@ -156,12 +232,12 @@ public class Simacogo {
 		Action action;
 		char[][] board = nextMove.getState();
 		int x = 0;
-		while(x < BOARD_SIZE){
+		while(x < ROWS){
 			if (board[x][rawMove] == 'X' || board[x][rawMove] == 'O'){
 				x--;
 				break;
 			}
-			else if (x == BOARD_SIZE - 1 && board[x][rawMove] == '\u00B7')
+			else if (x == ROWS - 1 && board[x][rawMove] == '\u00B7')
 				break;
 			else
 				x++;
@@ -178,14 +254,73 @@ public class Simacogo {
 	}
 	
 	/*
-	 * Checks that human input is between the column size of 1 and 9.
+	 * Checks that human input is between 1 and the number of columns.
 	 */
 	private int validateMove(int rawMove) {
 		//TODO: also check for closed-off columns
-		if(rawMove > 0 && rawMove < 10)
+		if(geometry.isValidColumn(rawMove - 1))
 			return rawMove - 1;
 		else return - 1;
 	}
+	
+	/*
+	 * The game on a board other than 9x9. Same turns as play(), on a
+	 * GeometryBoard searched by Minimax's any-size alpha-beta; the 9x9
+	 * extras (book, table, pondering, losing on purpose) are not offered.
+	 */
+	private void playGeometry() {
+		Minimax minimax = new Minimax();
+		Scanner scanner = new Scanner(System.in);
+		GeometryBoard board = GeometryBoard.create(geometry, true);
+		
+		System.out.println("Let's play Simacogo on a " + geometry + " board!");
+		System.out.println("Choose a ply: (1 - 10)");
+		ply = tryParse(scanner.next());
+		System.out.println("Use alpha beta pruning? y / n");
+		String answer = scanner.next();
+		SearchOptions options = new SearchOptions(ply, answer.equals("y") || answer.equals("Y"), false);
+		
+		//the human moves first, as X, like in play()
+		boolean humanMove = true;
+		while(!TerminalTest.isTerminalState(board)){
+			System.out.println("\nThe current board looks like this: \n");
+			board.printBoard();
+			System.out.println("\nThe current score is: ");
+			System.out.println("X : " + board.getXScore());
+			System.out.println("O : " + board.getOScore() + "\n");
+			
+			if(humanMove){
+				System.out.println("It's your move! Choose a slot number (1 - " 
+						+ geometry.getColumns() + ") to drop your X marker in.");
+				int y = validateMove(tryParse(scanner.next()));
+				while(y == -1 || !board.canPlay(y)){
+					System.out.println("Hmm, that wasn't a good input. Try "
+							+ "choosing another number...");
+					y = validateMove(tryParse(scanner.next()));
+				}
+				board.play(y);
+			} else {
+				System.out.println("It's the computer's move! It's thinking...\n");
+				long startTime = System.currentTimeMillis();
+				SearchResult result = minimax.decide(board, options);
+				System.out.println("The computer chose slot " + (result.getColumn() + 1));
+				System.out.println("Decision took " + (System.currentTimeMillis() - startTime) + " ms");
+				System.out.println("Search " + minimax.getStatistics());
+				board.play(result.getColumn());
+			}
+			humanMove = !humanMove;
+		}
+		
+		board.printBoard();
+		System.out.println("GAME OVER! X : " + board.getXScore() + ", O : " + board.getOScore());
+		if(board.getXScore() > board.getOScore())
+			System.out.println("X wins!");
+		else if(board.getOScore() > board.getXScore())
+			System.out.println("O wins!");
+		else
+			System.out.println("It's a tie!");
+		scanner.close();
+	}
 
 	//Print the board
 	public void printBoard(Node node){
@@ -210,8 +345,30 @@ public class Simacogo {
 		  }
 	}
 	
+	/*
+	 * Optional arguments: a board size such as 15x15 or 19x13 (columns x
+	 * rows, 9x9 by default), and the path to an opening book written by
+	 * OpeningBookBuilder.
+	 */
 	public static void main(String[] args){
-		Simacogo simacogo = new Simacogo();
+		OpeningBook book = null;
+		BoardGeometry geometry = BoardGeometry.STANDARD;
+		String bookPath = null;
+		for(String arg : args){
+			if(arg.matches("\\d+(x\\d+)?"))
+				geometry = BoardGeometry.parse(arg);
+			else
+				bookPath = arg;
+		}
+		if(bookPath != null){
+			try {
+				book = OpeningBook.open(Paths.get(bookPath));
+				System.out.println("Loaded opening book with " + book.size() + " positions");
+			} catch (IOException e) {
+				System.out.println("Could not load opening book: " + e.getMessage());
+			}
+		}
+		Simacogo simacogo = new Simacogo(book, geometry);
 		simacogo.play();
 	}
 
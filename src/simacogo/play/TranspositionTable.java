@@ -0,0 +1,193 @@
+package simacogo.play;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Fixed-size transposition table indexed by Zobrist hash. Each entry packs
+ * the depth searched, whether the score is exact or only a lower or upper
+ * bound, the score itself and the best column into one 64-bit word.
+ *
+ * Entries are stored lock-free as two longs, the key XOR the data and the
+ * data itself. A reader only accepts an entry when XOR-ing the two words
+ * gives back its key, so an entry torn by two threads writing the same slot
+ * reads as a miss. One table can therefore be shared by every search thread.
+ *
+ * Scores in Simacogo only depend on which markers are on the board, not on
+ * the order they were dropped, so a stored score is valid for every path
+ * that reaches the same position.
+ *
+ * A table kept for a whole game carries a generation, bumped once per turn.
+ * Entries remember the generation that wrote them, and the depth-preferred
+ * policy lets any new entry replace one from an older generation, so the
+ * positions the game has moved past age out while those under the new root
+ * are still there to be hit.
+ */
+public class TranspositionTable {
+
+	public static final byte EXACT = 0;
+	public static final byte LOWER = 1;
+	public static final byte UPPER = 2;
+	
+	//Layout of an entry word: score in the low 32 bits, then depth, bound, column, generation
+	private static final int DEPTH_SHIFT = 32;
+	private static final int BOUND_SHIFT = 40;
+	private static final int COLUMN_SHIFT = 42;
+	private static final long VALID = 1L << 47;
+	private static final int GENERATION_SHIFT = 48;
+	
+	/*
+	 * What to do when a new entry lands in an occupied slot. ALWAYS overwrites,
+	 * DEPTH_PREFERRED keeps an entry for a different position when it was
+	 * searched deeper than the new one and written in the current generation.
+	 */
+	public enum ReplacementPolicy {
+		ALWAYS,
+		DEPTH_PREFERRED
+	}
+	
+	//Two words per slot: key ^ entry, then entry
+	private final long[] slots;
+	private final int mask;
+	private final ReplacementPolicy policy;
+	
+	//Only changed between searches, by the thread that owns the game
+	private int generation;
+	
+	//Striped counters, so threads sharing the table do not contend on them
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder stores = new LongAdder();
+	
+	/*
+	 * Creates a table with 2^sizeBits slots.
+	 */
+	public TranspositionTable(int sizeBits, ReplacementPolicy policy){
+		int size = 1 << sizeBits;
+		this.slots = new long[size * 2];
+		this.mask = size - 1;
+		this.policy = policy;
+	}
+	
+	//Table with 2^20 slots that prefers deeper entries.
+	public TranspositionTable(){
+		this(20, ReplacementPolicy.DEPTH_PREFERRED);
+	}
+	
+	/*
+	 * Looks up a position. Returns its entry word, or 0 when it is not in the
+	 * table. Read the entry with the static getters.
+	 */
+	public long probe(long key){
+		probes.increment();
+		long entry = read(key);
+		if(entry != 0)
+			hits.increment();
+		return entry;
+	}
+	
+	//Entry stored for key, or 0, without touching the statistics.
+	private long read(long key){
+		int slot = ((int) key & mask) << 1;
+		long entry = slots[slot + 1];
+		if(entry != 0 && (slots[slot] ^ entry) == key)
+			return entry;
+		return 0;
+	}
+	
+	/*
+	 * Stores a search result, subject to the replacement policy.
+	 */
+	public void store(long key, int depth, byte bound, int score, int bestColumn){
+		int slot = ((int) key & mask) << 1;
+		if(policy == ReplacementPolicy.DEPTH_PREFERRED){
+			long old = slots[slot + 1];
+			if(old != 0 && (slots[slot] ^ old) != key && getDepth(old) > depth
+					&& getGeneration(old) == generation)
+				return;
+		}
+		stores.increment();
+		long entry = (score & 0xFFFFFFFFL)
+				| ((long) (depth & 0xFF) << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT)
+				| ((long) (bestColumn & 0xF) << COLUMN_SHIFT)
+				| VALID
+				| ((long) generation << GENERATION_SHIFT);
+		slots[slot] = key ^ entry;
+		slots[slot + 1] = entry;
+	}
+	
+	/*
+	 * Starts a new generation, making every entry stored so far replaceable
+	 * by shallower ones. Call it between searches, never during one.
+	 */
+	public void newGeneration(){
+		generation = (generation + 1) & 0xFF;
+	}
+	
+	public int getGeneration(){
+		return generation;
+	}
+	
+	//Empties the table and zeroes the statistics.
+	public void clear(){
+		Arrays.fill(slots, 0L);
+		generation = 0;
+		probes.reset();
+		hits.reset();
+		stores.reset();
+	}
+	
+	/*
+	 * Getters for an entry word returned by probe.
+	 */
+	public static int getDepth(long entry){
+		return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+	}
+	
+	public static byte getBound(long entry){
+		return (byte) ((entry >>> BOUND_SHIFT) & 0x3);
+	}
+	
+	public static int getScore(long entry){
+		return (int) entry;
+	}
+	
+	public static int getGeneration(long entry){
+		return (int) (entry >>> GENERATION_SHIFT) & 0xFF;
+	}
+	
+	/*
+	 * Best column found, or -1 when the node had none (the entry was written
+	 * at a node where every column was full).
+	 */
+	public static int getBestColumn(long entry){
+		int column = (int) (entry >>> COLUMN_SHIFT) & 0xF;
+		return column == 0xF ? -1 : column;
+	}
+	
+	/*
+	 * Statistics. The hit rate is the share of probes that found their
+	 * position, whether or not the entry was deep enough to use.
+	 */
+	public long getProbes(){
+		return probes.sum();
+	}
+	
+	public long getHits(){
+		return hits.sum();
+	}
+	
+	public long getStores(){
+		return stores.sum();
+	}
+	
+	public double getHitRate(){
+		long probed = probes.sum();
+		return probed == 0 ? 0.0 : (double) hits.sum() / probed;
+	}
+	
+	public int getSize(){
+		return slots.length / 2;
+	}
+}
@@ -0,0 +1,32 @@
+package simacogo.record;
+
+/*
+ * The compact game record format shared by MoveLogWriter and
+ * MoveLogReader. A game is only its columns: the board, scores and winner
+ * follow from replaying them.
+ *
+ * File: int magic, int version, then games back to back, each
+ *   1 byte   move count (0-81), with the top bit set when X moved first
+ *   n/2 bytes columns 0-8, two per byte, earlier move in the low nibble
+ *
+ * A full 81-move game takes 42 bytes.
+ */
+public final class MoveLog {
+
+	public static final int MAGIC = 0x534D434C;	//"SMCL"
+	public static final int VERSION = 1;
+	public static final int HEADER_BYTES = 8;
+	public static final int MAX_MOVES = 81;
+	public static final int MAX_GAME_BYTES = 1 + (MAX_MOVES + 1) / 2;
+	
+	static final int X_FIRST = 0x80;
+	static final int COUNT_MASK = 0x7F;
+	
+	private MoveLog(){
+	}
+	
+	//Bytes one game of this many moves takes in the file.
+	public static int gameBytes(int moves){
+		return 1 + (moves + 1) / 2;
+	}
+}
@@ -0,0 +1,250 @@
+package simacogo.record;
+
+import simacogo.framework.Action;
+import simacogo.framework.Board;
+import simacogo.framework.Node;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/*
+ * Streams games out of a move log. The file is read through one reused
+ * buffer, each game's columns are unpacked into one reused array, and
+ * replay plays them on one of two reused Boards, so reading any number of
+ * games allocates nothing per game or per move.
+ *
+ * Usage:
+ *   while(reader.nextGame())
+ *       reader.replay(listener);
+ */
+public class MoveLogReader implements Closeable {
+
+	private static final int BUFFER_BYTES = 1 << 16;
+	
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+	private final int[] columns = new int[MoveLog.MAX_MOVES];
+	private int count;
+	private boolean xFirst;
+	private boolean endOfFile;
+	
+	//Empty boards with each side to move, played on and undone for every game
+	private Board xFirstBoard;
+	private Board oFirstBoard;
+	
+	/*
+	 * Called by replay for every move, and once at the end of the game. The
+	 * board belongs to the reader and is only valid during the call.
+	 */
+	public interface ReplayListener {
+		void move(Board board, int ply, int column, int points);
+		
+		default void gameFinished(Board board){
+		}
+	}
+	
+	public MoveLogReader(Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		buffer.flip();
+		if(!fill(MoveLog.HEADER_BYTES) || buffer.getInt() != MoveLog.MAGIC 
+				|| buffer.getInt() != MoveLog.VERSION){
+			channel.close();
+			throw new IOException(path + " is not a move log");
+		}
+	}
+	
+	/*
+	 * Makes sure at least bytes are buffered, reading more of the file if
+	 * needed. False when the file ends first.
+	 */
+	private boolean fill(int bytes) throws IOException {
+		if(buffer.remaining() >= bytes)
+			return true;
+		buffer.compact();
+		while(buffer.position() < bytes){
+			if(channel.read(buffer) < 0){
+				buffer.flip();
+				return false;
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+	
+	/*
+	 * Moves to the next game. False at the end of the log; throws
+	 * IOException if the log ends partway through a game.
+	 */
+	public boolean nextGame() throws IOException {
+		if(endOfFile || !fill(1)){
+			endOfFile = true;
+			return false;
+		}
+		int header = buffer.get() & 0xFF;
+		count = header & MoveLog.COUNT_MASK;
+		xFirst = (header & MoveLog.X_FIRST) != 0;
+		if(count > MoveLog.MAX_MOVES || !fill(MoveLog.gameBytes(count) - 1))
+			throw new IOException("move log is corrupt or truncated");
+		for(int i = 0; i < count; i += 2){
+			int packed = buffer.get();
+			columns[i] = packed & 0xF;
+			if(i + 1 < count)
+				columns[i + 1] = (packed >>> 4) & 0xF;
+		}
+		return true;
+	}
+	
+	/*
+	 * Replays the current game on an empty board, calling the listener
+	 * after every move with the board as it stands and the points scored.
+	 */
+	public void replay(ReplayListener listener){
+		Board board = emptyBoard(xFirst);
+		for(int ply = 0; ply < count; ply++){
+			int y = columns[ply];
+			if(!board.canPlay(y)){
+				rewind(board, ply);
+				throw new IllegalStateException("move " + ply + " drops into full column " + y);
+			}
+			listener.move(board, ply, y, board.play(y));
+		}
+		listener.gameFinished(board);
+		rewind(board, count);
+	}
+	
+	private static void rewind(Board board, int moves){
+		for(int i = 0; i < moves; i++)
+			board.undo();
+	}
+	
+	private Board emptyBoard(boolean xToMove){
+		if(xToMove){
+			if(xFirstBoard == null)
+				xFirstBoard = new Board(new Node(0, 0, new Node().getState(), new Action(0, 0, 'O')));
+			return xFirstBoard;
+		}
+		if(oFirstBoard == null)
+			oFirstBoard = new Board(new Node());
+		return oFirstBoard;
+	}
+	
+	//BEGIN getters and setters
+	public int getMoveCount() {
+		return count;
+	}
+
+	public boolean isXFirst() {
+		return xFirst;
+	}
+
+	public int getColumn(int ply) {
+		return columns[ply];
+	}
+	//END getters and setters
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	/*
+	 * Strictly for unit testing. Writes random games, including empty and
+	 * part-played ones, reads them back, checks every column and final
+	 * score, and reports file size and allocation while replaying.
+	 */
+	public static void main(String[] args) throws IOException {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		java.util.Random random = new Random(19);
+		Path path = Files.createTempFile("simacogo", ".moves");
+		Files.delete(path);
+		int[][] written = new int[games][];
+		boolean[] xFirst = new boolean[games];
+		int[] margins = new int[games];
+		int rejected = 0;
+		try {
+			try(MoveLogWriter writer = new MoveLogWriter(path)){
+				for(int g = 0; g < games; g++){
+					xFirst[g] = random.nextBoolean();
+					Board board = xFirst[g] ? new Board(new Node(0, 0, new Node().getState(), 
+							new Action(0, 0, 'O'))) : new Board(new Node());
+					int moves = g % 10 == 0 ? random.nextInt(MoveLog.MAX_MOVES + 1) : MoveLog.MAX_MOVES;
+					written[g] = new int[moves];
+					for(int i = 0; i < moves; i++){
+						int y;
+						do {
+							y = random.nextInt(9);
+						} while(!board.canPlay(y));
+						board.play(y);
+						written[g][i] = y;
+					}
+					margins[g] = board.getOScore() - board.getXScore();
+					//a bad last column must leave nothing behind for the next game to follow
+					if(g % 1000 == 0 && moves > 0){
+						int[] bad = written[g].clone();
+						bad[moves - 1] = 9;
+						try {
+							writer.append(bad, moves, xFirst[g]);
+						} catch (IllegalArgumentException e) {
+							rejected++;
+						}
+					}
+					writer.append(written[g], moves, xFirst[g]);
+				}
+			}
+			
+			int[] mismatches = new int[1];
+			int[] margin = new int[1];
+			ReplayListener check = new ReplayListener(){
+				@Override
+				public void move(Board board, int ply, int column, int points){
+				}
+				
+				@Override
+				public void gameFinished(Board board){
+					margin[0] = board.getOScore() - board.getXScore();
+				}
+			};
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) 
+					ManagementFactory.getThreadMXBean();
+			long thread = Thread.currentThread().getId();
+			try(MoveLogReader reader = new MoveLogReader(path)){
+				int g = 0;
+				long before = 0;
+				long start = 0;
+				while(reader.nextGame()){
+					//the first game warms up the lazily built boards
+					if(g == 1){
+						before = threads.getThreadAllocatedBytes(thread);
+						start = System.nanoTime();
+					}
+					reader.replay(check);
+					boolean same = reader.getMoveCount() == written[g].length 
+							&& reader.isXFirst() == xFirst[g] && margin[0] == margins[g];
+					for(int i = 0; same && i < written[g].length; i++)
+						same = reader.getColumn(i) == written[g][i];
+					if(!same)
+						mismatches[0]++;
+					g++;
+				}
+				long nanos = System.nanoTime() - start;
+				long bytes = threads.getThreadAllocatedBytes(thread) - before;
+				System.out.println("Read back " + g + " of " + games + " games, " + mismatches[0] 
+						+ " mismatches, " + rejected + " bad games rejected");
+				System.out.println(Files.size(path) + " bytes on disk, " 
+						+ String.format("%.1f", (double) Files.size(path) / games) 
+						+ " per game");
+				System.out.println("Replay: " + String.format("%.0f", (g - 1) / (nanos / 1e9)) 
+						+ " games/s, " + bytes + " bytes allocated");
+			}
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+}
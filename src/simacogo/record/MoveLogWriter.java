@@ -0,0 +1,77 @@
+package simacogo.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Appends games to a move log. Games are packed into a direct buffer and
+ * written to the file in large batches, so millions of games cost a few
+ * hundred writes. An existing log is appended to; a new one gets the
+ * header first.
+ *
+ * Not thread-safe: give each writer one thread, or one file per thread.
+ */
+public class MoveLogWriter implements Closeable {
+
+	private static final int BUFFER_BYTES = 1 << 16;
+	
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+	private long games;
+	
+	public MoveLogWriter(Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, 
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		if(channel.size() == 0)
+			buffer.putInt(MoveLog.MAGIC).putInt(MoveLog.VERSION);
+	}
+	
+	/*
+	 * Appends one game: the first count entries of columns (0-8), and
+	 * whether X made the first move. A game with a column out of range is
+	 * rejected whole and nothing of it is written.
+	 */
+	public void append(int[] columns, int count, boolean xFirst) throws IOException {
+		if(count < 0 || count > MoveLog.MAX_MOVES)
+			throw new IllegalArgumentException("a game has 0 to 81 moves, not " + count);
+		//check every move before writing any, so a bad game leaves no partial record
+		for(int i = 0; i < count; i++){
+			if(columns[i] < 0 || columns[i] > 8)
+				throw new IllegalArgumentException("column out of range in move " + i);
+		}
+		if(buffer.remaining() < MoveLog.MAX_GAME_BYTES)
+			flush();
+		buffer.put((byte) (count | (xFirst ? MoveLog.X_FIRST : 0)));
+		for(int i = 0; i < count; i += 2){
+			int high = i + 1 < count ? columns[i + 1] : 0;
+			buffer.put((byte) (columns[i] | high << 4));
+		}
+		games++;
+	}
+	
+	//Writes out everything buffered so far.
+	public void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	//Games appended by this writer.
+	public long getGames() {
+		return games;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,349 @@
+package simacogo.server;
+
+import simacogo.play.Minimax;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Line-based TCP server hosting many Simacogo sessions in one JVM.
+ *
+ * All sockets are served by one non-blocking selector thread, so an idle
+ * game costs a session object and no thread. Computer moves run on a
+ * bounded search pool with a bounded queue: when the queue is full the
+ * move is turned away with BUSY at once, so a surge of searches can never
+ * hold up reading and answering other requests.
+ *
+ * Protocol, one command per line, columns numbered 1-9:
+ *   NEW [ply] [ab|noab]  -> OK <id>            or ERR full
+ *   MOVE <id> <column>   -> MOVED <id> <computer column, 0 for none> <x score> <o score> <PLAY|OVER>
+ *                           or BUSY <id>, ERR <id> <reason>
+ *   BOARD <id>           -> BOARD <id> <x score> <o score> <81 cells, top row first, '.' empty>
+ *   QUIT <id>            -> OK <id>
+ * A session belongs to the connection that created it and ends with it.
+ *
+ * Usage: GameServer [port] [search threads] [queue capacity] [max sessions]
+ */
+public class GameServer implements Closeable, Runnable {
+
+	public static final int DEFAULT_PORT = 9090;
+	private static final int MAX_PLY = 8;
+	private static final int DEFAULT_PLY = 4;
+	private static final int MAX_LINE = 128;
+	
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final ThreadPoolExecutor searches;
+	private final ThreadLocal<Minimax> engines = ThreadLocal.withInitial(Minimax::new);
+	private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<Long, GameSession>();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final int maxSessions;
+	
+	//Connections with replies queued by search threads, for the selector to pick up
+	private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<Connection>();
+	private final LongAdder rejected = new LongAdder();
+	private volatile boolean running = true;
+	
+	/*
+	 * Binds the port (0 for any free one). Searches run on searchThreads
+	 * threads with room for queueCapacity more waiting.
+	 */
+	public GameServer(int port, int searchThreads, int queueCapacity, int maxSessions) 
+			throws IOException {
+		this.maxSessions = maxSessions;
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		this.searches = new ThreadPoolExecutor(searchThreads, searchThreads, 0, TimeUnit.SECONDS, 
+				new ArrayBlockingQueue<Runnable>(queueCapacity), 
+				runnable -> {
+					Thread thread = new Thread(runnable, "simacogo-search");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+	
+	//The selector loop. Runs until close().
+	@Override
+	public void run(){
+		try {
+			while(running){
+				selector.select();
+				Connection pending;
+				while((pending = pendingWrites.poll()) != null){
+					if(pending.key.isValid())
+						pending.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()){
+					SelectionKey key = keys.next();
+					keys.remove();
+					try {
+						if(key.isAcceptable())
+							accept();
+						else {
+							if(key.isReadable())
+								((Connection) key.attachment()).read();
+							if(key.isValid() && key.isWritable())
+								((Connection) key.attachment()).write();
+						}
+					} catch (IOException e) {
+						if(key.attachment() instanceof Connection)
+							((Connection) key.attachment()).close();
+						else
+							key.cancel();
+					}
+				}
+			}
+		} catch (ClosedSelectorException e) {
+			//closed by close()
+		} catch (IOException e) {
+			if(running)
+				throw new IllegalStateException("selector failed", e);
+		}
+	}
+	
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if(channel == null)
+			return;
+		channel.configureBlocking(false);
+		Connection connection = new Connection(channel);
+		connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+	}
+	
+	/*
+	 * Handles one command line on the selector thread. Only the search is
+	 * handed off; everything else is answered here.
+	 */
+	private void handle(Connection connection, String line){
+		String[] words = line.trim().split("\\s+");
+		String command = words[0].toUpperCase();
+		try {
+			switch(command){
+			case "NEW":
+				if(sessions.size() >= maxSessions){
+					connection.send("ERR full");
+					return;
+				}
+				int ply = words.length > 1 ? Integer.parseInt(words[1]) : DEFAULT_PLY;
+				boolean ABPrune = words.length < 3 || !words[2].equalsIgnoreCase("noab");
+				long id = nextId.getAndIncrement();
+				sessions.put(id, new GameSession(id, Math.max(1, Math.min(ply, MAX_PLY)), ABPrune));
+				connection.owned.add(id);
+				connection.send("OK " + id);
+				return;
+			case "MOVE":
+				move(connection, Long.parseLong(words[1]), Integer.parseInt(words[2]) - 1);
+				return;
+			case "BOARD":
+				long boardId = Long.parseLong(words[1]);
+				GameSession session = connection.owned.contains(boardId) ? sessions.get(boardId) : null;
+				if(session == null)
+					connection.send("ERR " + words[1] + " unknown session");
+				else
+					connection.send("BOARD " + session.getId() + " " + session.getXScore() + " " 
+							+ session.getOScore() + " " + session.boardString());
+				return;
+			case "QUIT":
+				if(connection.owned.remove(Long.parseLong(words[1]))){
+					sessions.remove(Long.parseLong(words[1]));
+					connection.send("OK " + words[1]);
+				} else
+					connection.send("ERR " + words[1] + " unknown session");
+				return;
+			default:
+				connection.send("ERR unknown command " + words[0]);
+			}
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			connection.send("ERR malformed " + command);
+		}
+	}
+	
+	/*
+	 * Admission control for a move: the session must belong to this
+	 * connection and be free, the column playable, and the search pool must
+	 * have room, or the move is refused without touching the game. Another
+	 * connection's session gets the same reply as one that does not exist.
+	 */
+	private void move(Connection connection, long id, int y){
+		GameSession session = connection.owned.contains(id) ? sessions.get(id) : null;
+		if(session == null){
+			connection.send("ERR " + id + " unknown session");
+			return;
+		}
+		if(!session.claim()){
+			connection.send("ERR " + id + " move in progress");
+			return;
+		}
+		if(!session.canPlay(y)){
+			session.release();
+			connection.send("ERR " + id + " illegal move");
+			return;
+		}
+		try {
+			searches.execute(() -> play(connection, session, y));
+		} catch (RejectedExecutionException e) {
+			session.release();
+			rejected.increment();
+			connection.send("BUSY " + id);
+		}
+	}
+	
+	/*
+	 * Search pool side of a move: the human's drop, then the computer's
+	 * answer. The session is released before the reply goes out, so the
+	 * client's next move never finds it still claimed.
+	 */
+	private void play(Connection connection, GameSession session, int y){
+		String reply;
+		try {
+			session.humanMove(y);
+			int answer = session.computerMove(engines.get());
+			reply = "MOVED " + session.getId() + " " + (answer + 1) + " " + session.getXScore() 
+					+ " " + session.getOScore() + " " + (session.isOver() ? "OVER" : "PLAY");
+		} catch (RuntimeException e) {
+			reply = "ERR " + session.getId() + " " + e.getMessage();
+		} finally {
+			session.release();
+		}
+		connection.send(reply);
+	}
+	
+	//BEGIN getters and setters
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+	//Moves turned away with BUSY because the search queue was full
+	public long getRejected() {
+		return rejected.sum();
+	}
+	//END getters and setters
+	
+	@Override
+	public void close() throws IOException {
+		running = false;
+		selector.wakeup();
+		searches.shutdownNow();
+		serverChannel.close();
+		selector.close();
+	}
+	
+	/*
+	 * One client socket. Reads and writes happen on the selector thread;
+	 * send() may be called from any thread and only queues the line. The
+	 * sessions a connection created end when it closes.
+	 */
+	private final class Connection {
+		final SocketChannel channel;
+		SelectionKey key;
+		final ByteBuffer in = ByteBuffer.allocate(1024);
+		final StringBuilder line = new StringBuilder();
+		final Queue<String> out = new ConcurrentLinkedQueue<String>();
+		ByteBuffer writing;
+		final Set<Long> owned = new HashSet<Long>();
+		
+		Connection(SocketChannel channel){
+			this.channel = channel;
+		}
+		
+		void read() throws IOException {
+			if(channel.read(in) < 0){
+				close();
+				return;
+			}
+			in.flip();
+			while(in.hasRemaining()){
+				char c = (char) in.get();
+				if(c == '\n'){
+					if(line.length() > 0)
+						handle(this, line.toString());
+					line.setLength(0);
+				} else if(c != '\r'){
+					if(line.length() == MAX_LINE){
+						close();
+						return;
+					}
+					line.append(c);
+				}
+			}
+			in.clear();
+		}
+		
+		//Writes queued lines until the socket would block or nothing is left.
+		void write() throws IOException {
+			while(true){
+				if(writing == null || !writing.hasRemaining()){
+					String next = out.poll();
+					if(next == null)
+						break;
+					writing = ByteBuffer.wrap(next.getBytes(StandardCharsets.US_ASCII));
+				}
+				channel.write(writing);
+				if(writing.hasRemaining())
+					return;
+			}
+			key.interestOps(SelectionKey.OP_READ);
+			//a line queued after the poll above re-registers this connection
+			if(!out.isEmpty())
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		}
+		
+		void send(String reply){
+			out.add(reply + "\n");
+			pendingWrites.add(this);
+			selector.wakeup();
+		}
+		
+		void close(){
+			for(Long id : owned)
+				sessions.remove(id);
+			owned.clear();
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				//already closed
+			}
+		}
+	}
+	
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) 
+				: Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		int queue = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+		int maxSessions = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+		GameServer server = new GameServer(port, threads, queue, maxSessions);
+		System.out.println("Simacogo server on port " + server.getPort() + " with " + threads 
+				+ " search threads");
+		server.run();
+	}
+}
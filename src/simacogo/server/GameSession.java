@@ -0,0 +1,120 @@
+package simacogo.server;
+
+import simacogo.framework.Action;
+import simacogo.framework.BoardGeometry;
+import simacogo.framework.Node;
+import simacogo.framework.TerminalTest;
+import simacogo.play.Minimax;
+import simacogo.play.SearchOptions;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * One game hosted by the server. Owns the current Node and takes moves by
+ * method call instead of from System.in. The human plays X and moves
+ * first, as in Simacogo; the computer answers as O.
+ *
+ * A session handles one move at a time: claim() must succeed before a
+ * move is played and release() follows it, so the I/O thread can turn
+ * away a second move while a search for the first is still running.
+ */
+public class GameSession {
+
+	private static final int ROWS = BoardGeometry.STANDARD.getRows();
+	private static final int COLUMNS = BoardGeometry.STANDARD.getColumns();
+	private static final int CELLS = BoardGeometry.STANDARD.getCells();
+	
+	private final long id;
+	private final int ply;
+	private final boolean ABPrune;
+	private final AtomicBoolean busy = new AtomicBoolean();
+	private volatile Node current;
+	
+	public GameSession(long id, int ply, boolean ABPrune){
+		this.id = id;
+		this.ply = ply;
+		this.ABPrune = ABPrune;
+		//empty board with X to move
+		this.current = new Node(0, 0, new Node().getState(), new Action(0, 0, 'O'));
+	}
+	
+	//Claims the session for one move, false if a move is already in play.
+	public boolean claim(){
+		return busy.compareAndSet(false, true);
+	}
+	
+	public void release(){
+		busy.set(false);
+	}
+	
+	//Whether the human may drop into this column (0-8) now.
+	public boolean canPlay(int y){
+		return y >= 0 && y < COLUMNS && !isOver() && current.getHeight(y) < ROWS;
+	}
+	
+	/*
+	 * Plays the human's X into column y (0-8). Throws
+	 * IllegalArgumentException when the column is full or out of range.
+	 */
+	public void humanMove(int y){
+		if(!canPlay(y))
+			throw new IllegalArgumentException("column " + (y + 1) + " is not playable");
+		current = child(current, y);
+	}
+	
+	/*
+	 * Lets the computer choose and play O's move with the given engine.
+	 * Returns the column played, or -1 when the game is already over.
+	 */
+	public int computerMove(Minimax minimax){
+		if(isOver())
+			return -1;
+		int y = minimax.decide(current, new SearchOptions(ply, ABPrune, false));
+		current = child(current, y);
+		return y;
+	}
+	
+	private static Node child(Node node, int y){
+		for(Node child : node.getChildren()){
+			if(child.getAction().getyCoord() == y)
+				return child;
+		}
+		throw new IllegalStateException("column " + y + " has no child");
+	}
+	
+	public boolean isOver(){
+		return TerminalTest.isTerminalStateFast(current);
+	}
+	
+	/*
+	 * The board as 81 characters, row by row from the top, with '.' for an
+	 * empty cell.
+	 */
+	public String boardString(){
+		char[][] state = current.getState();
+		StringBuilder sb = new StringBuilder(CELLS);
+		for(int x = 0; x < ROWS; x++){
+			for(int y = 0; y < COLUMNS; y++)
+				sb.append(state[x][y] == 'X' || state[x][y] == 'O' ? state[x][y] : '.');
+		}
+		return sb.toString();
+	}
+	
+	//BEGIN getters and setters
+	public long getId() {
+		return id;
+	}
+
+	public Node getCurrent() {
+		return current;
+	}
+
+	public int getXScore() {
+		return current.getXScore();
+	}
+
+	public int getOScore() {
+		return current.getOScore();
+	}
+	//END getters and setters
+}